@@ -0,0 +1,64 @@
+package bguspl.set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Benchmarks UtilImpl.findSets and streamSets over a shuffled full deck, for several deck sizes and counts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FindSetsBenchmark {
+
+    /**
+     * The deck has 3^featureCount cards (81, 243 and 729).
+     */
+    @Param({"4", "5", "6"})
+    public String featureCount;
+
+    @Param({"1", "12", "2147483647"})
+    public int count;
+
+    private Util util;
+    private List<Integer> deck;
+    private int[] cards;
+
+    @Setup
+    public void setUp() {
+        Config config = UtilBenchmark.config(featureCount);
+        util = new UtilImpl(config);
+        deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        Collections.shuffle(deck, new Random(0));
+        cards = deck.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Benchmark
+    public List<int[]> findSets() {
+        return util.findSets(deck, count);
+    }
+
+    @Benchmark
+    public long streamSets() {
+        return util.streamSets(cards).limit(count).count();
+    }
+}
@@ -0,0 +1,63 @@
+package bguspl.set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Benchmarks UtilImpl.testSet on the default deck (FeatureCount=4, FeatureSize=3).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+
+    private Util util;
+    private final int[] set = {0, 40, 80};    // 0000, 1111, 2222
+    private final int[] nonSet = {0, 1, 4};   // 0000, 0001, 0011
+
+    static Config config(String featureCount) {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", featureCount);
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PointFreezeSeconds", "0");
+        properties.put("PenaltyFreezeSeconds", "0");
+        return new Config(logger(), properties);
+    }
+
+    static Logger logger() {
+        Logger logger = Logger.getLogger("benchmark");
+        logger.setUseParentHandlers(false);
+        return logger;
+    }
+
+    @Setup
+    public void setUp() {
+        util = new UtilImpl(config("4"));
+    }
+
+    @Benchmark
+    public boolean testSet_Set() {
+        return util.testSet(set);
+    }
+
+    @Benchmark
+    public boolean testSet_NonSet() {
+        return util.testSet(nonSet);
+    }
+}
@@ -0,0 +1,95 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks a full Dealer.checkIfSet round trip against a no-op user interface: a legal set (point, the cards are
+ * replaced from the deck) and an illegal one (penalty). The dealer thread is not started.
+ */
+@Fork(1)
+public class DealerBenchmark {
+
+    /**
+     * The number of points checked per measured batch (one fresh dealer each).
+     */
+    private static final int BATCH = 1000;
+
+    // the unshuffled deck deals cards 0-11, in which 0000, 0001, 0002 is a set and 0000, 0001, 0011 is not
+    private static final int[] set = {0, 1, 2};
+    private static final int[] nonSet = {0, 1, 4};
+
+    static Dealer dealer() {
+        Env env = TableBenchmark.env();
+        Table table = new Table(env);
+        Player[] players = new Player[env.config.players];
+        Dealer dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+        dealer.placeCardsOnTable();
+        return dealer;
+    }
+
+    /**
+     * A point takes the set's cards off the table, so each call needs a fresh dealer. The dealers of a batch are
+     * created before the batch is measured (a setup per invocation would dominate a sub-microsecond call).
+     */
+    @State(Scope.Thread)
+    public static class Dealers {
+        final Dealer[] dealers = new Dealer[BATCH];
+        int next;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            for (int i = 0; i < BATCH; i++)
+                dealers[i] = dealer();
+            next = 0;
+        }
+    }
+
+    /**
+     * A penalty does not change the table, so one dealer serves all the calls.
+     */
+    @State(Scope.Thread)
+    public static class OneDealer {
+        Dealer dealer;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            dealer = dealer();
+        }
+    }
+
+    /**
+     * Reports the time of a batch of BATCH points (divide by BATCH for one point).
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 10, batchSize = BATCH)
+    @Measurement(iterations = 20, batchSize = BATCH)
+    public Dealer.Verdict checkIfSet_Point(Dealers dealers) {
+        return dealers.dealers[dealers.next++].checkIfSet(0, set);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public Dealer.Verdict checkIfSet_Penalty(OneDealer state) {
+        return state.dealer.checkIfSet(0, nonSet);
+    }
+}
@@ -0,0 +1,79 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.HeadlessUserInterface;
+import bguspl.set.UtilImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Benchmarks the token operations of a full table. Each benchmark leaves the tokens as it found them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableBenchmark {
+
+    private Table table;
+
+    static Env env() {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "4");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PointFreezeSeconds", "0");
+        properties.put("PenaltyFreezeSeconds", "0");
+        Logger logger = Logger.getLogger("benchmark");
+        logger.setUseParentHandlers(false);
+        Config config = new Config(logger, properties);
+        return new Env(logger, config, new HeadlessUserInterface(logger, config), new UtilImpl(config));
+    }
+
+    @Setup
+    public void setUp() {
+        Env env = env();
+        table = new Table(env);
+        for (int slot = 0; slot < env.config.tableSize; ++slot)
+            table.placeCard(slot, slot);
+    }
+
+    @Benchmark
+    public void makeAction_Toggle() {
+        table.makeAction(0, 5);
+        table.makeAction(0, 5);
+    }
+
+    @Benchmark
+    public void placeToken_RemoveToken() {
+        table.placeToken(0, 5);
+        table.removeToken(0, 5);
+    }
+
+    @Benchmark
+    public int[] threeTokens_GetPlayerCards() {
+        table.placeToken(0, 1);
+        table.placeToken(0, 4);
+        table.placeToken(0, 9);
+        int[] cards = table.getPlayerCards(0);
+        table.removeToken(0, 9);
+        table.removeToken(0, 4);
+        table.removeToken(0, 1);
+        return cards;
+    }
+}
@@ -0,0 +1,199 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * A log handler that takes the writing of the log records off the game threads.
+ * The records are put in a bounded ring buffer and a background writer thread passes them in batches to the target
+ * handler (e.g. a FileHandler), flushing once per batch. The records are formatted by the target handler on the
+ * writer thread, so parameterized messages (e.g. "player {0} ...") are only formatted there.
+ */
+public class AsyncLogHandler extends Handler {
+
+    /**
+     * What to do with a record below WARNING when the buffer is full (records of WARNING and above always wait).
+     */
+    public enum DropPolicy {
+        BLOCK,       // wait until the writer makes room
+        DROP_NEWEST, // drop the record being logged
+        DROP_OLDEST; // drop the oldest record in the buffer
+
+        /**
+         * Parses a policy name, e.g. "Block", "DropNewest" or "DROP_OLDEST".
+         */
+        public static DropPolicy parse(String name) {
+            String normalized = name.trim().replace("_", "");
+            for (DropPolicy policy : values())
+                if (policy.name().replace("_", "").equalsIgnoreCase(normalized))
+                    return policy;
+            throw new IllegalArgumentException("unknown log drop policy: " + name);
+        }
+    }
+
+    /**
+     * The maximal number of records passed to the target handler before it is flushed.
+     */
+    private static final int BATCH_SIZE = 256;
+
+    private final Handler target;
+    private final DropPolicy dropPolicy;
+    private final BlockingQueue<LogRecord> buffer;
+    private final Thread writer;
+
+    /**
+     * The number of records dropped since the last report (reported as a warning by the writer).
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * The number of records put in the buffer, and the number of those that are done: written and flushed by the
+     * writer, or dropped from the buffer. flush waits on the condition until the records published before it are done.
+     */
+    private final AtomicLong buffered = new AtomicLong();
+    private final AtomicLong done = new AtomicLong();
+    private final Lock doneLock = new ReentrantLock();
+    private final Condition doneChanged = doneLock.newCondition();
+
+    private volatile boolean closed;
+
+    /**
+     * @param target     - the handler that writes the records (closed by this handler).
+     * @param capacity   - the number of records the buffer can hold.
+     * @param dropPolicy - what to do when the buffer is full.
+     */
+    public AsyncLogHandler(Handler target, int capacity, DropPolicy dropPolicy) {
+        this.target = target;
+        this.dropPolicy = dropPolicy;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        setLevel(target.getLevel());
+        writer = new Thread(this::write, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) return;
+
+        if (buffer.offer(record)) {
+            buffered.incrementAndGet();
+            return;
+        }
+
+        if (dropPolicy == DropPolicy.BLOCK || record.getLevel().intValue() >= Level.WARNING.intValue()) {
+            try {
+                buffer.put(record);
+                buffered.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // the game threads are interrupted to terminate: keep the flag
+                dropped.incrementAndGet();
+            }
+            return;
+        }
+
+        while (!buffer.offer(record)) {
+            if (dropPolicy == DropPolicy.DROP_NEWEST) {
+                dropped.incrementAndGet();
+                return;
+            }
+            if (buffer.poll() != null) { // DROP_OLDEST
+                dropped.incrementAndGet();
+                done.incrementAndGet();
+            }
+        }
+        buffered.incrementAndGet();
+    }
+
+    /**
+     * The main loop of the writer thread: waits for records and passes them to the target in batches.
+     */
+    private void write() {
+        try {
+            writeBatches();
+        } finally {
+            signalDone(0); // wake up the flushing threads if the writer stops
+        }
+    }
+
+    private void writeBatches() {
+        List<LogRecord> batch = new ArrayList<>(BATCH_SIZE);
+        while (!closed || !buffer.isEmpty()) {
+            try {
+                LogRecord first = buffer.take();
+                batch.add(first);
+            } catch (InterruptedException e) {
+                // woken up by close: drain what is left
+            }
+            buffer.drainTo(batch, BATCH_SIZE - batch.size());
+            for (LogRecord record : batch)
+                target.publish(record);
+            reportDropped(); // after the batch that was being written when the records were dropped
+            target.flush();
+            signalDone(batch.size());
+            batch.clear();
+        }
+    }
+
+    private void signalDone(int records) {
+        done.addAndGet(records);
+        doneLock.lock();
+        try {
+            doneChanged.signalAll();
+        } finally {
+            doneLock.unlock();
+        }
+    }
+
+    private void reportDropped() {
+        long count = dropped.getAndSet(0);
+        if (count > 0)
+            target.publish(new LogRecord(Level.WARNING, count + " log records were dropped (log buffer full)."));
+    }
+
+    /**
+     * Returns once the records published before the call were written and flushed by the writer (or dropped).
+     */
+    @Override
+    public void flush() {
+        long published = buffered.get();
+        doneLock.lock();
+        try {
+            while (done.get() < published && writer.isAlive())
+                doneChanged.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            doneLock.unlock();
+        }
+        if (!writer.isAlive())
+            target.flush();
+    }
+
+    /**
+     * Writes the remaining records and closes the target handler. Records published afterwards are ignored.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            reportError("interrupted while closing the log", e, ErrorManager.CLOSE_FAILURE);
+        }
+        reportDropped();
+        target.close();
+    }
+}
@@ -0,0 +1,82 @@
+package bguspl.set;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The card images, shared by all the tables of the process.
+ * Each image resource is read and decoded once, on a small pool of loader threads, so the windows do not wait for
+ * the whole deck to load and the tables of a multi-table game share the same images.
+ */
+final class CardImages {
+
+    /**
+     * The loaded (or loading) images, by resource name.
+     */
+    private static final ConcurrentMap<String, CompletableFuture<Image>> images = new ConcurrentHashMap<>();
+
+    private static final ExecutorService loaders = Executors.newFixedThreadPool(
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())), new LoaderThreadFactory());
+
+    private static class LoaderThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "card-loader-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private CardImages() {}
+
+    /**
+     * Returns the image of a resource, loading it in the background if it is not loaded yet.
+     *
+     * @param filename - the name of the image resource (e.g. "cards/0000.png").
+     * @return - the image, completed exceptionally if the resource does not exist or cannot be decoded.
+     */
+    static CompletableFuture<Image> load(String filename) {
+        return images.computeIfAbsent(filename, name -> CompletableFuture.supplyAsync(() -> read(name), loaders));
+    }
+
+    /**
+     * Returns the image of a resource, waiting for it to load.
+     *
+     * @throws RuntimeException - if the resource does not exist or cannot be decoded.
+     */
+    static Image get(String filename) {
+        try {
+            return load(filename).join();
+        } catch (CompletionException e) {
+            throw (RuntimeException) e.getCause(); // read throws unchecked exceptions only
+        }
+    }
+
+    private static Image read(String filename) {
+        URL imageResource = CardImages.class.getClassLoader().getResource(filename);
+        if (imageResource == null)
+            throw new RuntimeException(new FileNotFoundException(filename));
+        try {
+            Image image = ImageIO.read(imageResource);
+            if (image == null)
+                throw new IOException("unsupported image format: " + filename);
+            return image;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
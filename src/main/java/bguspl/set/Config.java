@@ -7,6 +7,7 @@ import java.nio.file.InvalidPathException;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Properties;
+import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -15,6 +16,31 @@ import java.util.logging.Logger;
  */
 public class Config {
 
+    /**
+     * The minimal level of the messages written to the log
+     */
+    public final Level logLevel;
+
+    /**
+     * The number of log records buffered for the background log writer
+     */
+    public final int logBufferSize;
+
+    /**
+     * What to do with a log record when the log buffer is full (Block, DropNewest or DropOldest)
+     */
+    public final AsyncLogHandler.DropPolicy logDropPolicy;
+
+    /**
+     * The directory of the binary journals that record the actions of each game ("" to record nothing)
+     */
+    public final String journalDirectory;
+
+    /**
+     * The number of milliseconds between the metrics reports of a game (0 to report at the end only, negative for never)
+     */
+    public final long metricsIntervalMillis;
+
     /**
      * The number of features on the cards (e.g. shape, color etc.)
      */
@@ -45,11 +71,52 @@ public class Config {
      */
     public final int players;
 
+    /**
+     * How the computer players choose their key presses: "Random" (any slot) or "Smart" (the slots of a set)
+     */
+    public final String computerStrategy;
+
+    /**
+     * The average number of milliseconds a smart computer player takes to spot a set
+     */
+    public final long computerReactionMillis;
+
+    /**
+     * The number of milliseconds between the key presses of a smart computer player
+     */
+    public final long computerKeyDelayMillis;
+
+    /**
+     * The probability that a set spotted by a smart computer player is a legal set
+     */
+    public final double computerAccuracy;
+
     /**
      * Whether to print out hints to the console or not
      */
     public final boolean hints;
 
+    /**
+     * Whether to run without a graphical user interface (e.g. for simulations on machines without a display)
+     */
+    public final boolean headless;
+
+    /**
+     * The number of independent games (tables) to run in one process (more than 1 implies headless)
+     */
+    public final int tables;
+
+    /**
+     * Whether to run the dealer, player and computer player threads as virtual threads (requires Java 21 or newer).
+     * Each table has its own threads either way (they are not pooled); virtual threads make them cheap for many tables.
+     */
+    public final boolean virtualThreads;
+
+    /**
+     * The seed of the dealer's shuffles and the computer players' key presses (random if not configured)
+     */
+    public final long seed;
+
     /**
      * The number of milliseconds until the dealer reshuffles the deck (0 show timer since last action, -1 show nothing)
      */
@@ -169,6 +236,13 @@ public class Config {
 
     public Config(Logger logger, Properties properties) {
 
+        // logger settings
+        logLevel = Level.parse(properties.getProperty("LogLevel", "ALL").trim());
+        logBufferSize = Integer.parseInt(properties.getProperty("LogBufferSize", "8192"));
+        logDropPolicy = AsyncLogHandler.DropPolicy.parse(properties.getProperty("LogDropPolicy", "Block"));
+        journalDirectory = properties.getProperty("JournalDirectory", "").trim();
+        metricsIntervalMillis = (long) (Double.parseDouble(properties.getProperty("MetricsIntervalSeconds", "0")) * 1000.0);
+
         // cards data
         featureSize = Integer.parseInt(properties.getProperty("FeatureSize", "3"));
         featureCount = Integer.parseInt(properties.getProperty("FeatureCount", "4"));
@@ -179,7 +253,19 @@ public class Config {
         computerPlayers = Integer.parseInt(properties.getProperty("ComputerPlayers", "0"));
         players = humanPlayers + computerPlayers;
 
+        computerStrategy = properties.getProperty("ComputerStrategy", "Random").trim();
+        if (!computerStrategy.equalsIgnoreCase("Random") && !computerStrategy.equalsIgnoreCase("Smart"))
+            logger.log(Level.WARNING, "unknown computer strategy " + computerStrategy + ", using Random.");
+        computerReactionMillis = (long) (Double.parseDouble(properties.getProperty("ComputerReactionSeconds", "1.5")) * 1000.0);
+        computerKeyDelayMillis = (long) (Double.parseDouble(properties.getProperty("ComputerKeyDelaySeconds", "0.2")) * 1000.0);
+        computerAccuracy = Double.parseDouble(properties.getProperty("ComputerAccuracy", "0.9"));
+
         hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
+        headless = Boolean.parseBoolean(properties.getProperty("Headless", "False"));
+        tables = Integer.parseInt(properties.getProperty("Tables", "1"));
+        virtualThreads = Boolean.parseBoolean(properties.getProperty("VirtualThreads", "False"));
+        String seedValue = properties.getProperty("Seed", "").trim();
+        seed = seedValue.isEmpty() ? new Random().nextLong() : Long.parseLong(seedValue);
         turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
         turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "60")) * 1000.0);
         pointFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PointFreezeSeconds", "1")) * 1000.0);
@@ -0,0 +1,143 @@
+package bguspl.set;
+
+import java.awt.*;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Passes the calls of the game threads to a Swing user interface on the event dispatch thread, so the game threads
+ * never touch Swing components nor wait for the rendering.
+ * The calls are queued and applied in their order by one task per turn of the event dispatch thread. The countdown
+ * (or elapsed time) and the freeze time of each player only show their latest value, so the values that another
+ * call replaced before that task ran are dropped.
+ */
+public class DispatchingUserInterface implements UserInterface {
+
+    private final UserInterface ui;
+
+    /**
+     * The calls to apply in order (cards, tokens, scores and the winners).
+     */
+    private final Queue<Runnable> updates = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The latest timer update, and the latest freeze update of each player (null if already applied).
+     */
+    private final AtomicReference<Runnable> timer = new AtomicReference<>();
+    private final AtomicReferenceArray<Runnable> freezes;
+
+    /**
+     * True while a flush task is queued on the event dispatch thread.
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * @param ui      - the user interface to call on the event dispatch thread.
+     * @param players - the number of players.
+     */
+    public DispatchingUserInterface(UserInterface ui, int players) {
+        this.ui = ui;
+        this.freezes = new AtomicReferenceArray<>(players);
+    }
+
+    private void update(Runnable update) {
+        updates.add(update);
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true))
+            EventQueue.invokeLater(this::flush);
+    }
+
+    /**
+     * Applies the pending updates (on the event dispatch thread).
+     */
+    private void flush() {
+        scheduled.set(false); // the updates submitted from now on are applied by the next flush (or by this one)
+        for (Runnable update = updates.poll(); update != null; update = updates.poll())
+            update.run();
+        Runnable update = timer.getAndSet(null);
+        if (update != null)
+            update.run();
+        for (int player = 0; player < freezes.length(); player++) {
+            update = freezes.getAndSet(player, null);
+            if (update != null)
+                update.run();
+        }
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        update(() -> ui.placeCard(card, slot));
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        update(() -> ui.removeCard(slot));
+    }
+
+    @Override
+    public void placeCards(int[] cards, int[] slots) {
+        int[] dealt = cards.clone(), to = slots.clone(); // the caller may reuse the arrays before they are applied
+        update(() -> ui.placeCards(dealt, to));
+    }
+
+    @Override
+    public void removeCards(int[] slots) {
+        int[] from = slots.clone();
+        update(() -> ui.removeCards(from));
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        timer.set(() -> ui.setCountdown(millies, warn));
+        schedule();
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        timer.set(() -> ui.setElapsed(millies));
+        schedule();
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        update(() -> ui.setScore(player, score));
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        freezes.set(player, () -> ui.setFreeze(player, millies));
+        schedule();
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        update(() -> ui.placeToken(player, slot));
+    }
+
+    @Override
+    public void removeTokens() {
+        update(ui::removeTokens);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        update(() -> ui.removeTokens(slot));
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        update(() -> ui.removeToken(player, slot));
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        int[] winners = players.clone();
+        update(() -> ui.announceWinner(winners));
+    }
+}
@@ -1,5 +1,6 @@
 package bguspl.set;
 
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.Logger;
 
 public class Env {
@@ -9,10 +10,51 @@ public class Env {
     public final UserInterface ui;
     public final Util util;
 
+    /**
+     * Creates the threads of the game (dealer, players and computer players).
+     */
+    public final ThreadFactory threadFactory;
+
+    /**
+     * The name of the game, used as a prefix for its thread names when several games run in one process ("" if none).
+     */
+    public final String name;
+
+    /**
+     * Records the actions of the game (Journal.NONE if the game is not recorded).
+     */
+    public final Journal journal;
+
+    /**
+     * The measurements of the game (see Metrics).
+     */
+    public final Metrics metrics = new Metrics();
+
     public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, Thread::new, "", Journal.NONE);
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, ThreadFactory threadFactory, String name,
+               Journal journal) {
         this.logger = logger;
         this.config = config;
         this.ui = ui;
         this.util = util;
+        this.threadFactory = threadFactory;
+        this.name = name;
+        this.journal = journal;
+    }
+
+    /**
+     * Creates a new (not started) thread of the game.
+     *
+     * @param task - the task the thread runs.
+     * @param name - the name of the thread (prefixed by the name of the game, if any).
+     * @return     - the new thread.
+     */
+    public Thread newThread(Runnable task, String name) {
+        Thread thread = threadFactory.newThread(task);
+        thread.setName(this.name.isEmpty() ? name : this.name + "/" + name);
+        return thread;
     }
 }
@@ -0,0 +1,81 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs several independent games (config.tables) in one process. Each game has its own Env, Table, Dealer and
+ * players (and journal), while the logger, the configuration, the Util lookup tables and the thread factory are shared.
+ * The games run headless.
+ * The thread factory is shared, not a thread pool: each game still has its own dealer, player and computer player
+ * threads (1 + 2 * players per table), since these threads block for the whole game (a bounded pool would deadlock).
+ * With platform threads this limits the number of tables; config.virtualThreads is the way to host many of them.
+ */
+public class GameHost {
+
+    private final Logger logger;
+    private final Config config;
+    private final Util util;
+    private final ThreadFactory threadFactory;
+
+    private final Dealer[] dealers;
+    private final Thread[] dealerThreads;
+    private final Journal[] journals;
+
+    public GameHost(Logger logger, Config config, Util util, ThreadFactory threadFactory) {
+        this.logger = logger;
+        this.config = config;
+        this.util = util;
+        this.threadFactory = threadFactory;
+        dealers = new Dealer[config.tables];
+        dealerThreads = new Thread[config.tables];
+        journals = new Journal[config.tables];
+    }
+
+    /**
+     * Starts all the games and waits until they are all finished.
+     */
+    public void run() {
+        for (int i = 0; i < dealers.length; i++) {
+            String name = "table-" + (i + 1);
+            journals[i] = MappedJournal.create(logger, config, name);
+            Env env = new Env(logger, config, new HeadlessUserInterface(logger, config), util, threadFactory, name, journals[i]);
+            dealers[i] = createGame(env, config.seed + i);
+            dealerThreads[i] = env.newThread(dealers[i], "dealer");
+        }
+        logger.log(Level.INFO, "hosting " + dealers.length + " tables.");
+        if (!config.virtualThreads)
+            logger.log(Level.INFO, "each table runs " + (1 + config.players + config.computerPlayers)
+                    + " platform threads; set VirtualThreads=True to host many tables.");
+
+        for (Thread dealerThread : dealerThreads)
+            dealerThread.start();
+        for (Thread dealerThread : dealerThreads)
+            try {dealerThread.join();} catch (InterruptedException ignored) {}
+        for (Journal journal : journals)
+            journal.close();
+    }
+
+    /**
+     * Terminates all the games.
+     */
+    public void terminate() {
+        for (Dealer dealer : dealers)
+            if (dealer != null)
+                dealer.terminate();
+    }
+
+    private static Dealer createGame(Env env, long seed) {
+        Player[] players = new Player[env.config.players];
+        Table table = new Table(env);
+        Dealer dealer = new Dealer(env, table, players, seed);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+        return dealer;
+    }
+}
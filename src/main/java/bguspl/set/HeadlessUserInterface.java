@@ -0,0 +1,62 @@
+package bguspl.set;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A UserInterface implementation that displays nothing (no Swing components and no card images).
+ * Used to run computer-only games on machines without a display, e.g. for simulations and load tests.
+ */
+public class HeadlessUserInterface implements UserInterface {
+
+    private final Logger logger;
+    private final Config config;
+
+    public HeadlessUserInterface(Logger logger, Config config) {
+        this.logger = logger;
+        this.config = config;
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {}
+
+    @Override
+    public void removeCard(int slot) {}
+
+    @Override
+    public void placeCards(int[] cards, int[] slots) {}
+
+    @Override
+    public void removeCards(int[] slots) {}
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {}
+
+    @Override
+    public void setElapsed(long millies) {}
+
+    @Override
+    public void setScore(int player, int score) {}
+
+    @Override
+    public void setFreeze(int player, long millies) {}
+
+    @Override
+    public void placeToken(int player, int slot) {}
+
+    @Override
+    public void removeTokens() {}
+
+    @Override
+    public void removeTokens(int slot) {}
+
+    @Override
+    public void removeToken(int player, int slot) {}
+
+    @Override
+    public void announceWinner(int[] players) {
+        String[] names = Arrays.stream(players).mapToObj(player -> config.playerNames[player]).toArray(String[]::new);
+        logger.log(Level.INFO, "announcing winners: " + Arrays.toString(names));
+    }
+}
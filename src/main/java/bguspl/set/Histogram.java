@@ -0,0 +1,87 @@
+package bguspl.set;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative values (e.g. durations in nanoseconds), in the style of HdrHistogram.
+ * The buckets are log-linear: the values below 2^SUB_BITS have a bucket each, and each power of two above is split into
+ * 2^(SUB_BITS-1) equal buckets, so a value is known up to 1/2^(SUB_BITS-1) of itself with 960 buckets for all longs.
+ * Recording a value is a few increments of atomic counters; the statistics read while values are recorded are
+ * approximate (each counter is read once, not as one snapshot).
+ */
+public class Histogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF_COUNT = SUB_COUNT / 2;
+    private static final int BUCKETS = (Long.SIZE - SUB_BITS) * HALF_COUNT + HALF_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value - the value to record (negative values are recorded as 0).
+     */
+    public void record(long value) {
+        if (value < 0)
+            value = 0;
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        if (value > max.get())
+            max.accumulateAndGet(value, Math::max);
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_COUNT)
+            return (int) value;
+        int shift = (Long.SIZE - 1 - Long.numberOfLeadingZeros(value)) - (SUB_BITS - 1);
+        return shift * HALF_COUNT + (int) (value >>> shift);
+    }
+
+    /**
+     * @return - the highest value that is recorded in the bucket.
+     */
+    static long highestValue(int bucket) {
+        if (bucket < SUB_COUNT)
+            return bucket;
+        int shift = bucket / HALF_COUNT - 1;
+        long lowest = (long) (bucket % HALF_COUNT + HALF_COUNT) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @param percentile - the percentile (between 0 and 100).
+     * @return           - the (highest equivalent) value below which the percentile of the recorded values are, or 0
+     *                     if no value was recorded.
+     */
+    public long percentile(double percentile) {
+        long n = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+            n += snapshot[i] = counts.get(i);
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        for (int i = 0; i < BUCKETS; i++) {
+            rank -= snapshot[i];
+            if (rank <= 0)
+                return Math.min(highestValue(i), max.get());
+        }
+        return 0;
+    }
+}
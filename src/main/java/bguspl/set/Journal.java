@@ -0,0 +1,106 @@
+package bguspl.set;
+
+/**
+ * This interface records the actions of a game (deals, tokens, claims, points, penalties and reshuffles), so
+ * games can be analyzed and replayed offline.
+ * Recording is called by the dealer and the player threads, and must not block them.
+ */
+public interface Journal {
+
+    /**
+     * The kinds of recorded actions, with the meaning of their value and data fields.
+     */
+    enum Event {
+        DEAL,          // value: the card placed on the table, data: its slot
+        COLLECT,       // value: the card removed from the table, data: its slot
+        TOKEN_PLACED,  // player, value: the slot, data: the card in the slot
+        TOKEN_REMOVED, // player, value: the slot
+        CLAIM,         // player, value: the number of claimed cards, data: the (first 4) cards (see pack)
+        POINT,         // player, value: the new score
+        PENALTY,       // player
+        RESHUFFLE,     // value: the number of cards in the deck
+        START,         // value: the number of players, data: the seed of the dealer's shuffles
+        ACTION,        // player, value: the slot of a key press taken by the player thread
+        CHECK,         // player, the dealer starts checking the claim of the player
+        TIMEOUT        // the turn timed out, the dealer reshuffles
+    }
+
+    /**
+     * A recorded action.
+     */
+    class Entry {
+        public final long nanos;
+        public final Event event;
+        public final int player;
+        public final int value;
+        public final long data;
+
+        public Entry(long nanos, Event event, int player, int value, long data) {
+            this.nanos = nanos;
+            this.event = event;
+            this.player = player;
+            this.value = value;
+            this.data = data;
+        }
+
+        /**
+         * @return - true iff the entries record the same action (regardless of its time).
+         */
+        public boolean sameAction(Entry other) {
+            return event == other.event && player == other.player && value == other.value && data == other.data;
+        }
+
+        @Override
+        public String toString() {
+            return nanos + " " + event + " player=" + player + " value=" + value + " data=" + data;
+        }
+    }
+
+    /**
+     * A journal that records nothing.
+     */
+    Journal NONE = new Journal() {
+        @Override
+        public void record(Event event, int player, int value, long data) {}
+
+        @Override
+        public void close() {}
+    };
+
+    /**
+     * Records an action, time-stamped with a monotonic clock.
+     *
+     * @param event  - the kind of action.
+     * @param player - the player that made the action (-1 for the dealer).
+     * @param value  - the first argument of the action (see Event).
+     * @param data   - the second argument of the action (see Event).
+     */
+    void record(Event event, int player, int value, long data);
+
+    /**
+     * Writes the recorded actions to the storage and stops recording.
+     */
+    void close();
+
+    /**
+     * Packs up to 4 values of 16 bits (e.g. card ids) into the data field of a record, the first value in the
+     * highest bits.
+     */
+    static long pack(int[] values) {
+        long packed = 0;
+        for (int i = 0; i < Math.min(values.length, 4); i++)
+            packed = packed << 16 | (values[i] & 0xFFFF);
+        return packed;
+    }
+
+    /**
+     * Unpacks count values packed by pack.
+     */
+    static int[] unpack(long packed, int count) {
+        count = Math.min(count, 4);
+        int[] values = new int[count];
+        for (int i = count - 1; i >= 0; i--, packed >>>= 16)
+            values[i] = (int) (packed & 0xFFFF);
+        return values;
+    }
+}
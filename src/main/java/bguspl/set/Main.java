@@ -2,14 +2,18 @@ package bguspl.set;
 
 import bguspl.set.ex.Dealer;
 import bguspl.set.ex.Player;
+import bguspl.set.ex.Replay;
 import bguspl.set.ex.Table;
 
 import java.awt.*;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.ThreadFactory;
 import java.util.logging.*;
 
 /**
@@ -17,19 +21,54 @@ import java.util.logging.*;
  */
 public class Main {
 
+    /**
+     * The command line argument that runs the game without a graphical user interface.
+     */
+    private static final String HEADLESS_ARG = "--headless";
+
+    /**
+     * The command line argument that replays the game recorded in the journal file given as the next argument.
+     */
+    private static final String REPLAY_ARG = "--replay";
+
     /**
      * The game's main function. Creates all data structures and initializes the threads.
      *
-     * @param args - unused.
+     * @param args - "--headless" to run without a graphical user interface; "--replay" followed by a journal file
+     *             to replay a recorded game (with the same config.properties); any other argument disables the log
+     *             timestamps.
      */
     public static void main(String[] args) {
 
         // create the game environment objects
-        Logger logger = initLogger(args.length > 0);
+        boolean headlessArg = Arrays.asList(args).contains(HEADLESS_ARG);
+        int replayArg = Arrays.asList(args).indexOf(REPLAY_ARG);
+        String journalFile = replayArg >= 0 && replayArg + 1 < args.length ? args[replayArg + 1] : null;
+        Logger logger = initLogger(args.length > (headlessArg ? 1 : 0) + (journalFile != null ? 2 : 0));
         Config config = new Config(logger, "config.properties");
-        UserInterfaceImpl ui = new UserInterfaceImpl(logger, config);
-        EventQueue.invokeLater(() -> ui.setVisible(true));
-        Env env = new Env(logger, config, ui, new UtilImpl(config));
+        bufferLogger(logger, config);
+        if (journalFile != null) {
+            replay(logger, config, journalFile);
+            return;
+        }
+        if (config.tables > 1) {
+            host(logger, config);
+            return;
+        }
+        boolean headless = headlessArg || config.headless || GraphicsEnvironment.isHeadless();
+        UserInterfaceImpl window = null;
+        UserInterface ui;
+        if (headless) {
+            if (config.humanPlayers > 0)
+                logger.log(Level.WARNING, "running headless: the " + config.humanPlayers + " human players get no input.");
+            ui = new HeadlessUserInterface(logger, config);
+        }
+        else {
+            window = new UserInterfaceImpl(logger, config);
+            ui = new DispatchingUserInterface(window, config.players);
+        }
+        Env env = new Env(logger, config, ui, new UtilImpl(config), threadFactory(logger, config), "",
+                MappedJournal.create(logger, config, ""));
 
         // create the game entities
         Player[] players = new Player[env.config.players];
@@ -37,19 +76,82 @@ public class Main {
         Dealer dealer = new Dealer(env, table, players);
         for (int i = 0; i < players.length; i++)
             players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
-        ui.addKeyListener(new InputManager(env, players));
-        ui.addWindowListener(new WindowManager(env, dealer));
+        if (window != null) {
+            UserInterfaceImpl frame = window;
+            frame.addKeyListener(new InputManager(env, players));
+            frame.addWindowListener(new WindowManager(env, dealer));
+            EventQueue.invokeLater(() -> frame.setVisible(true));
+        }
 
         // start the dealer thread
-        Thread dealerThread = new Thread(dealer, "dealer");
+        Thread dealerThread = env.newThread(dealer, "dealer");
         dealerThread.start();
 
         try {dealerThread.join();} catch (InterruptedException ignored) {}
+        env.journal.close();
         env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
         for(Handler h:env.logger.getHandlers())
             h.close();
     }
 
+    /**
+     * Replays the game recorded in a journal file and logs whether the dealer made the same decisions.
+     */
+    private static void replay(Logger logger, Config config, String journalFile) {
+        try {
+            Replay replay = new Replay(logger, config, MappedJournal.read(Paths.get(journalFile)));
+            replay.run();
+            logger.log(Level.INFO, "replayed scores: " + Arrays.toString(replay.scores()));
+        } catch (IOException | IllegalArgumentException e) {
+            logger.log(Level.SEVERE, "cannot replay " + journalFile + ": " + e.getMessage());
+        }
+        for (Handler h : logger.getHandlers())
+            h.close();
+    }
+
+    /**
+     * Runs config.tables games in this process, sharing one Util and thread factory.
+     */
+    private static void host(Logger logger, Config config) {
+        GameHost host = new GameHost(logger, config, new UtilImpl(config), threadFactory(logger, config));
+        Thread shutdownHook = new Thread(host::terminate, "host-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        host.run();
+        try {Runtime.getRuntime().removeShutdownHook(shutdownHook);} catch (IllegalStateException ignored) {} // already shutting down
+        logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
+        for (Handler h : logger.getHandlers())
+            h.close();
+    }
+
+    /**
+     * Creates the factory of the game threads: virtual threads if configured and supported by the running JVM
+     * (Java 21 or newer, looked up reflectively since the code targets Java 8), platform threads otherwise.
+     */
+    private static ThreadFactory threadFactory(Logger logger, Config config) {
+        if (config.virtualThreads) {
+            try {
+                Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+                return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+            } catch (ReflectiveOperationException e) {
+                logger.log(Level.WARNING, "virtual threads are not supported by this JVM, using platform threads.");
+            }
+        }
+        return Thread::new;
+    }
+
+    /**
+     * Moves the writing of the log records to a background thread (see AsyncLogHandler), so logging does not delay
+     * the game threads, and applies the configured log level.
+     */
+    private static void bufferLogger(Logger logger, Config config) {
+        logger.setLevel(config.logLevel);
+        for (Handler h : logger.getHandlers()) {
+            logger.removeHandler(h);
+            logger.addHandler(new AsyncLogHandler(h, config.logBufferSize, config.logDropPolicy));
+        }
+    }
+
     private static Logger initLogger(boolean disableTimestamp) {
 
         FileHandler fh;
@@ -70,11 +172,11 @@ public class Main {
             private static final String formatWithoutTimestamp = "[%2$-7s] %3$s%n";
 
             @Override
-            public synchronized String format(LogRecord lr) {
+            public String format(LogRecord lr) { // called by the log writer thread only
                 return String.format(disableTimestamp ? formatWithoutTimestamp : formatWithTimestamp,
                         new Date(lr.getMillis()),
                         lr.getLevel().getLocalizedName(),
-                        lr.getMessage()
+                        formatMessage(lr) // fills in the parameters of the message, if any
                 );
             }
         });
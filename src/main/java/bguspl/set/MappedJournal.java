@@ -0,0 +1,256 @@
+package bguspl.set;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A Journal that appends fixed-size binary records to a memory-mapped file.
+ * Each record slot is reserved together with its timestamp under a short lock (so the timestamps increase in file
+ * order), and the record is written with absolute puts into the mapped chunk that holds it, outside the lock, so the
+ * recording threads never wait for I/O (except for mapping a new chunk).
+ *
+ * The file starts with a header record, followed by the action records (big-endian):
+ * header: magic (8 bytes), version (2), record size (2), record count (4), start time in epoch milliseconds (8).
+ * record: nanoseconds since the start (8), event ordinal + 1 (2), player (2), value (4), data (8).
+ * The record count is written by close, after the records in progress were written (it is 0 if the game did not
+ * close the journal, e.g. it crashed). The file is extended a chunk at a time, so the records are followed by zeros;
+ * a record with an event of 0 before the end is missing (e.g. its chunk could not be mapped), see read.
+ */
+public class MappedJournal implements Journal {
+
+    public static final long MAGIC = 0x5345544A524E4C31L; // "SETJRNL1"
+    public static final short VERSION = 1;
+    public static final int RECORD_BYTES = 24;
+
+    /**
+     * The number of records in each mapped chunk of the file.
+     */
+    private static final int CHUNK_RECORDS = 1 << 16;
+    private static final long CHUNK_BYTES = (long) CHUNK_RECORDS * RECORD_BYTES;
+
+    private final FileChannel channel;
+    private final long startNanos;
+
+    /**
+     * The index of the next free record (record 0 is the header).
+     */
+    private long next = 1;
+
+    /**
+     * Guards next and closed: a record's index and timestamp are taken together, so the timestamps increase in file
+     * order (a j.u.c lock rather than a monitor, so a recording virtual thread is not pinned to its carrier).
+     */
+    private final Lock reserveLock = new ReentrantLock();
+
+    /**
+     * The number of reserved records that are being written, and the condition signalled to close when it drops to 0.
+     */
+    private final AtomicInteger writing = new AtomicInteger();
+    private final Lock writtenLock = new ReentrantLock();
+    private final Condition written = writtenLock.newCondition();
+
+    /**
+     * The chunks mapped so far (replaced by a longer copy when a chunk is added).
+     */
+    private volatile MappedByteBuffer[] chunks = new MappedByteBuffer[0];
+
+    /**
+     * Guards mapping the chunks and closing the file (a j.u.c lock, like reserveLock).
+     */
+    private final Lock mapLock = new ReentrantLock();
+
+    private volatile boolean closed;
+
+    public MappedJournal(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        startNanos = System.nanoTime();
+        MappedByteBuffer header = chunk(0);
+        header.putLong(0, MAGIC);
+        header.putShort(8, VERSION);
+        header.putShort(10, (short) RECORD_BYTES);
+        header.putLong(16, System.currentTimeMillis());
+    }
+
+    /**
+     * Creates the journal of a game in config.journalDirectory, named after the current time and the game.
+     *
+     * @param name - the name of the game ("" if none).
+     * @return     - the journal, or Journal.NONE if journaling is disabled or the file cannot be created.
+     */
+    public static Journal create(Logger logger, Config config, String name) {
+        if (config.journalDirectory.isEmpty())
+            return NONE;
+        SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
+        String fileName = format.format(Calendar.getInstance().getTime()) + (name.isEmpty() ? "" : "_" + name) + ".journal";
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            new File(config.journalDirectory).mkdirs();
+            return new MappedJournal(Paths.get(config.journalDirectory, fileName));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "cannot create the journal " + fileName + ", the game is not recorded.", e);
+            return NONE;
+        }
+    }
+
+    @Override
+    public void record(Event event, int player, int value, long data) {
+        if (closed) return;
+        long time, index;
+        reserveLock.lock();
+        try {
+            if (closed) return;
+            time = System.nanoTime() - startNanos;
+            index = next++;
+            writing.incrementAndGet();
+        } finally {
+            reserveLock.unlock();
+        }
+        try {
+            write(index, time, event, player, value, data);
+        } finally {
+            if (writing.decrementAndGet() == 0 && closed)
+                signalWritten();
+        }
+    }
+
+    private void write(long index, long time, Event event, int player, int value, long data) {
+        int offset = (int) (index % CHUNK_RECORDS * RECORD_BYTES);
+        int chunk = (int) (index / CHUNK_RECORDS);
+
+        MappedByteBuffer[] mapped = chunks;
+        MappedByteBuffer buffer;
+        try {
+            buffer = chunk < mapped.length ? mapped[chunk] : chunk(chunk);
+        } catch (IOException e) {
+            return; // the record is missing from the file (e.g. the disk is full), read reports it
+        }
+        buffer.putLong(offset, time);
+        buffer.putShort(offset + 10, (short) player);
+        buffer.putInt(offset + 12, value);
+        buffer.putLong(offset + 16, data);
+        buffer.putShort(offset + 8, (short) (event.ordinal() + 1));
+    }
+
+    private void signalWritten() {
+        writtenLock.lock();
+        try {
+            written.signalAll();
+        } finally {
+            writtenLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the given chunk of the file, mapping it (and any chunk before it) if needed.
+     */
+    private MappedByteBuffer chunk(int chunk) throws IOException {
+        mapLock.lock();
+        try {
+            MappedByteBuffer[] mapped = chunks;
+            if (chunk < mapped.length)
+                return mapped[chunk];
+            MappedByteBuffer[] extended = Arrays.copyOf(mapped, chunk + 1);
+            for (int i = mapped.length; i <= chunk; i++)
+                extended[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * CHUNK_BYTES, CHUNK_BYTES);
+            chunks = extended;
+            return extended[chunk];
+        } finally {
+            mapLock.unlock();
+        }
+    }
+
+    /**
+     * Stops recording, waits for the records in progress, writes the record count, forces the records to the disk
+     * and closes the file. A record made concurrently with closing is either written or ignored. The chunks stay
+     * mapped, as Java cannot unmap them safely.
+     */
+    @Override
+    public void close() {
+        long records;
+        reserveLock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            records = next - 1;
+        } finally {
+            reserveLock.unlock();
+        }
+        writtenLock.lock();
+        try {
+            while (writing.get() > 0)
+                written.awaitUninterruptibly();
+        } finally {
+            writtenLock.unlock();
+        }
+
+        mapLock.lock();
+        try {
+            MappedByteBuffer[] mapped = chunks;
+            mapped[0].putInt(12, (int) Math.min(records, Integer.MAX_VALUE));
+            for (MappedByteBuffer chunk : mapped)
+                chunk.force();
+            try {
+                channel.close();
+            } catch (IOException ignored) {}
+        } finally {
+            mapLock.unlock();
+        }
+    }
+
+    /**
+     * Reads the records of a journal file (in the order their slots were reserved). The records end at the record
+     * count of the header, or at the last written record if the journal was not closed.
+     *
+     * @throws IOException - if the file is not a journal, or a record before the end is missing (so a replay of the
+     *                       journal would diverge).
+     */
+    public static List<Entry> read(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() < RECORD_BYTES || buffer.getLong(0) != MAGIC || buffer.getShort(10) != RECORD_BYTES)
+            throw new IOException(file + " is not a journal file.");
+
+        long records = buffer.getInt(12);
+        if (records == 0)
+            for (long index = buffer.limit() / RECORD_BYTES - 1; index > 0 && records == 0; index--)
+                if (buffer.getShort((int) index * RECORD_BYTES + 8) != 0)
+                    records = index;
+
+        List<Entry> entries = new ArrayList<>();
+        Event[] events = Event.values();
+        long missing = 0, firstMissing = 0;
+        for (long index = 1; index <= records; index++) {
+            int offset = (int) (index * RECORD_BYTES);
+            int event = offset + RECORD_BYTES <= buffer.limit() ? buffer.getShort(offset + 8) : 0;
+            if (event == 0) {
+                if (missing++ == 0)
+                    firstMissing = index;
+                continue;
+            }
+            entries.add(new Entry(buffer.getLong(offset), events[event - 1], buffer.getShort(offset + 10),
+                    buffer.getInt(offset + 12), buffer.getLong(offset + 16)));
+        }
+        if (missing > 0)
+            throw new IOException(file + " misses " + missing + " of its " + records + " records (the first is record "
+                    + firstMissing + ").");
+        return entries;
+    }
+}
@@ -0,0 +1,93 @@
+package bguspl.set;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The measurements of a game: latency histograms (in nanoseconds) and event counters, by name.
+ * The game entities look their histograms and counters up once and record into them from any thread; the report is
+ * logged periodically by the dealer (see config.metricsIntervalMillis).
+ */
+public class Metrics {
+
+    /**
+     * From the submission of a claim by a player to the verdict of the dealer.
+     */
+    public static final String CLAIM_VERDICT = "claim.verdict";
+
+    /**
+     * From the submission of a claim to the start of its check (the time the claim waits in the dealer's queue).
+     */
+    public static final String CLAIM_QUEUE = "claim.queue";
+
+    /**
+     * The searches of the dealer for a legal set in the deck (to know whether the game is over).
+     */
+    public static final String FIND_SETS_DECK = "findSets.deck";
+
+    /**
+     * The searches of the smart computer players for the legal sets on the table.
+     */
+    public static final String FIND_SETS_TABLE = "findSets.table";
+
+    /**
+     * Dealing the cards on the table (including the reshuffles when the table has no legal set).
+     */
+    public static final String DEAL = "deal";
+
+    /**
+     * From a key press to the token toggled on the table by the player thread.
+     */
+    public static final String KEY_TO_TOKEN = "key.token";
+
+    /**
+     * The claims of each player (with the id of the player appended).
+     */
+    public static final String CLAIMS = "claims.player";
+
+    private final long started = System.nanoTime();
+    private final ConcurrentMap<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+
+    /**
+     * @return - the histogram of the name (created if none).
+     */
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    /**
+     * @return - the counter of the name (created if none).
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * @return - one line per histogram (count, mean, percentiles and max, in milliseconds) and per counter (count and
+     *           rate per second since the start of the game).
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+            Histogram histogram = entry.getValue();
+            report.append(String.format("%n  %-16s count=%d mean=%.3f p50=%.3f p90=%.3f p99=%.3f p99.9=%.3f max=%.3f (ms)",
+                    entry.getKey(), histogram.count(), histogram.mean() / 1e6, millis(histogram.percentile(50)),
+                    millis(histogram.percentile(90)), millis(histogram.percentile(99)),
+                    millis(histogram.percentile(99.9)), millis(histogram.max())));
+        }
+        double seconds = Math.max(1, System.nanoTime() - started) / (double) TimeUnit.SECONDS.toNanos(1);
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            long count = entry.getValue().sum();
+            report.append(String.format("%n  %-16s count=%d rate=%.2f/s", entry.getKey(), count, count / seconds));
+        }
+        return report.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
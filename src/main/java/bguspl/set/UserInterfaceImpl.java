@@ -2,9 +2,10 @@ package bguspl.set;
 
 import javax.swing.*;
 import java.awt.*;
-import java.io.FileNotFoundException;
-import java.net.URL;
 import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -96,18 +97,33 @@ public class UserInterfaceImpl extends JFrame implements UserInterface {
 
     private class GamePanel extends JLayeredPane {
 
+        /**
+         * The number of players up to which the token labels are cached in an array (2^players labels).
+         */
+        private static final int LABELS_ARRAY_PLAYERS = 12;
+
         private final Image emptyCard;
-        private final Image[] deck;
-        private final Image[][] grid;
-        private final boolean[][][] playerTokens;
+
+        /**
+         * The image resource of each card (see CardImages), and the card in each cell of the grid (-1 for none).
+         */
+        private final String[] cardFiles;
+        private final int[][] grid;
         private final JLabel[][] tokenText;
 
-        private Image loadImageResource(String filename) {
-            URL imageResource = getClass().getClassLoader().getResource(filename);
-            if (imageResource == null)
-                throw new RuntimeException(new FileNotFoundException(filename));
-            return new ImageIcon(imageResource).getImage();
-        }
+        /**
+         * The players that placed a token in each slot (bit i for player i, as in Table), and the label of each set of
+         * players, built the first time it is shown (in an array indexed by the bitmask, up to LABELS_ARRAY_PLAYERS).
+         */
+        private final long[] slotPlayers;
+        private final String[] labels;
+
+        /**
+         * The pending cell changes of the dealt cards ({slot, card}, card -1 for an empty card), shown one per tick
+         * of dealTimer so the dealing is animated on the event dispatch thread instead of delaying the dealer.
+         */
+        private final Queue<int[]> pendingCells = new ConcurrentLinkedQueue<>();
+        private final Timer dealTimer;
 
         private GamePanel() {
 
@@ -116,19 +132,20 @@ public class UserInterfaceImpl extends JFrame implements UserInterface {
             // init deck and load all pictures from png files
             assert config.featureSize < 10; // otherwise there will be naming conflicts
 
-            // load the image resources
-            deck = new Image[config.deckSize];
+            // the card images are loaded when the cards are first placed (see cardImage)
+            cardFiles = new String[config.deckSize];
             for (int i = 0; i < config.deckSize; ++i)
-                deck[i] = loadImageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png");
-            emptyCard = loadImageResource("cards/empty_card.png");
+                cardFiles[i] = "cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png";
+            emptyCard = CardImages.get("cards/empty_card.png");
 
-            grid = new Image[config.rows][config.columns];
+            grid = new int[config.rows][config.columns];
             tokenText = new JLabel[config.rows][config.columns];
-            playerTokens = new boolean[config.players][config.rows][config.columns];
+            slotPlayers = new long[config.tableSize];
+            labels = new String[config.players <= LABELS_ARRAY_PLAYERS ? 1 << config.players : 0];
             for (int row = 0; row < config.rows; row++) {
                 for (int column = 0; column < config.columns; column++) {
                     // init the cards on the table grid as empty cards
-                    grid[row][column] = emptyCard;
+                    grid[row][column] = -1;
 
                     // init the JLabel selection overlay
                     tokenText[row][column] = new JLabel("");
@@ -140,76 +157,161 @@ public class UserInterfaceImpl extends JFrame implements UserInterface {
                     add(tokenText[row][column]);
                 }
             }
+
+            dealTimer = new Timer((int) Math.max(1, config.tableDelayMillis), e -> {
+                int[] cell = pendingCells.poll();
+                if (cell == null)
+                    ((Timer) e.getSource()).stop();
+                else
+                    setCell(cell[0], cell[1]);
+            });
         }
 
-        private void placeCard(int slot, int card) {
-            logger.log(Level.SEVERE, "placing card " + card + " in slot " + slot);
+        /**
+         * Shows a card (-1 for the empty card) in a slot, and repaints that cell only. The repaint requests of the
+         * cells changed within a frame are coalesced by the RepaintManager into a single paint of their region.
+         */
+        private void setCell(int slot, int card) {
             int row = slot / config.columns;
             int column = slot % config.columns;
-            grid[row][column] = deck[card];
-            validate();
-            repaint();
+            grid[row][column] = card;
+            load(slot, card);
+            repaintCell(slot);
         }
 
-        private void removeCard(int slot) {
-            logger.log(Level.SEVERE, "removing card from slot " + slot);
+        private void repaintCell(int slot) {
             int row = slot / config.columns;
             int column = slot % config.columns;
-            grid[row][column] = emptyCard;
-            validate();
-            repaint();
+            repaint(column * config.cellWidth, row * config.cellHeight, config.cellWidth, config.cellHeight);
+        }
+
+        /**
+         * Starts loading the image of a card (if it is not loaded yet), and repaints its cell when it is loaded.
+         */
+        private void load(int slot, int card) {
+            if (card < 0)
+                return;
+            CompletableFuture<Image> image = CardImages.load(cardFiles[card]);
+            if (!image.isDone())
+                image.whenComplete((loaded, e) -> {
+                    if (e != null)
+                        logger.log(Level.SEVERE, "cannot load the image of card " + card, e);
+                    repaintCell(slot);
+                });
+        }
+
+        /**
+         * @return - the image of a card, or the empty card image while it is loading (or if it cannot be loaded).
+         */
+        private Image cardImage(int card) {
+            if (card < 0)
+                return emptyCard;
+            CompletableFuture<Image> image = CardImages.load(cardFiles[card]);
+            return image.isDone() && !image.isCompletedExceptionally() ? image.join() : emptyCard;
+        }
+
+        private void deal(int[] slots, int[] cards) {
+            if (config.tableDelayMillis <= 0) {
+                for (int i = 0; i < slots.length; i++)
+                    setCell(slots[i], cards == null ? -1 : cards[i]);
+                return;
+            }
+
+            for (int i = 0; i < slots.length; i++)
+                pendingCells.add(new int[]{slots[i], cards == null ? -1 : cards[i]});
+            SwingUtilities.invokeLater(() -> {
+                if (!dealTimer.isRunning() && !pendingCells.isEmpty())
+                    dealTimer.start();
+            });
+        }
+
+        private void placeCards(int[] cards, int[] slots) {
+            logger.log(Level.FINE, "placing cards {0} in slots {1}", new Object[]{Arrays.toString(cards), Arrays.toString(slots)});
+            deal(slots, cards);
+        }
+
+        private void removeCards(int[] slots) {
+            logger.log(Level.FINE, "removing cards from slots {0}", Arrays.toString(slots));
+            deal(slots, null);
+        }
+
+        private void placeCard(int slot, int card) {
+            logger.log(Level.FINE, "placing card {0} in slot {1}", new Object[]{card, slot});
+            setCell(slot, card);
+        }
+
+        private void removeCard(int slot) {
+            logger.log(Level.FINE, "removing card from slot {0}", slot);
+            setCell(slot, -1);
         }
 
         private void placeToken(int player, int slot) {
-            logger.log(Level.SEVERE, "player " + player + " placing token on slot " + slot);
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = true;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
+            logger.log(Level.FINE, "player {0} placing token on slot {1}", new Object[]{player, slot});
+            setTokens(slot, slotPlayers[slot] | 1L << player);
         }
 
         private void removeTokens() {
-            logger.log(Level.SEVERE, "removing all tokens");
+            logger.log(Level.FINE, "removing all tokens");
             for (int i = 0; i < config.tableSize; i++)
                 removeTokens(i);
         }
 
         private void removeTokens(int slot) {
-            logger.log(Level.SEVERE, "removing tokens from slot " + slot);
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            for (int player = 0; player < playerTokens.length; player++) {
-                playerTokens[player][row][column] = false;
-                tokenText[row][column].setText(generatePlayersTokenText(row, column));
-            }
+            logger.log(Level.FINE, "removing tokens from slot {0}", slot);
+            setTokens(slot, 0);
         }
 
         private void removeToken(int player, int slot) {
-            logger.log(Level.SEVERE, "removing player " + player + " token from slot " + slot);
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = false;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
+            logger.log(Level.FINE, "removing player {0} token from slot {1}", new Object[]{player, slot});
+            setTokens(slot, slotPlayers[slot] & ~(1L << player));
         }
 
-        private String generatePlayersTokenText(int row, int column) {
-            String text = "";
-            for (int player = 0; player < config.players; player++) {
-                if (playerTokens[player][row][column])
-                    text = text.concat(config.playerNames[player] + ", ");
+        private void setTokens(int slot, long players) {
+            if (slotPlayers[slot] == players)
+                return;
+            slotPlayers[slot] = players;
+            tokenText[slot / config.columns][slot % config.columns].setText(label(players));
+        }
+
+        /**
+         * @return - the names of the players in the bitmask, separated by commas. With more than LABELS_ARRAY_PLAYERS
+         *           players the label is built on each call, i.e. once per change of a slot's players (see setTokens),
+         *           and only the label shown by each slot is kept.
+         */
+        private String label(long players) {
+            if (players >= labels.length)
+                return generatePlayersTokenText(players);
+            String label = labels[(int) players];
+            if (label == null)
+                label = labels[(int) players] = generatePlayersTokenText(players);
+            return label;
+        }
+
+        private String generatePlayersTokenText(long players) {
+            StringBuilder text = new StringBuilder();
+            for (; players != 0; players &= players - 1) {
+                if (text.length() > 0)
+                    text.append(", ");
+                text.append(config.playerNames[Long.numberOfTrailingZeros(players)]);
             }
-            if (text.length() < 2)
-                return "";
-            return text.substring(0, text.length() - 2);
+            return text.toString();
         }
 
         @Override
         public void paintComponent(Graphics g) {
 
-            // draw card images
-            for (int row = 0; row < config.rows; row++)
-                for (int column = 0; column < config.columns; column++)
-                    g.drawImage(grid[row][column], (column * config.cellWidth), (row * config.cellHeight), this);
+            // draw the card images of the cells in the dirty region only (see setCell)
+            Rectangle clip = g.getClipBounds();
+            int firstRow = 0, lastRow = config.rows - 1, firstColumn = 0, lastColumn = config.columns - 1;
+            if (clip != null) {
+                firstRow = Math.max(firstRow, clip.y / config.cellHeight);
+                lastRow = Math.min(lastRow, (clip.y + clip.height - 1) / config.cellHeight);
+                firstColumn = Math.max(firstColumn, clip.x / config.cellWidth);
+                lastColumn = Math.min(lastColumn, (clip.x + clip.width - 1) / config.cellWidth);
+            }
+            for (int row = firstRow; row <= lastRow; row++)
+                for (int column = firstColumn; column <= lastColumn; column++)
+                    g.drawImage(cardImage(grid[row][column]), (column * config.cellWidth), (row * config.cellHeight), this);
         }
     }
 
@@ -237,12 +339,12 @@ public class UserInterfaceImpl extends JFrame implements UserInterface {
         }
 
         private void setScore(int player, int score) {
-            logger.log(Level.SEVERE, "setting player " + player + " score to " + score);
+            logger.log(Level.FINE, "setting player {0} score to {1}", new Object[]{player, score});
             playersTable[1][player].setText(Integer.toString(score));
         }
 
         private void setFreeze(int player, long millies) {
-            logger.log(Level.SEVERE, "setting player " + player + " freeze to " + millies);
+            logger.log(Level.FINE, "setting player {0} freeze to {1,number,#}", new Object[]{player, millies});
             if (millies > 0) {
                 this.playersTable[0][player].setText(config.playerNames[player] + " (" + millies / 1000 + ")");
                 this.playersTable[0][player].setForeground(Color.RED);
@@ -268,7 +370,7 @@ public class UserInterfaceImpl extends JFrame implements UserInterface {
         }
 
         private void announceWinner(int[] players) {
-            logger.log(Level.SEVERE, "announcing winners: " + Arrays.toString(players));
+            logger.log(Level.INFO, "announcing winners: " + Arrays.toString(players));
             if (players.length == 1)
                 winnerAnnouncement.setText("THE WINNER IS: " + config.playerNames[players[0]] + "!!!");
             else {
@@ -291,6 +393,16 @@ public class UserInterfaceImpl extends JFrame implements UserInterface {
         gamePanel.removeCard(slot);
     }
 
+    @Override
+    public void placeCards(int[] cards, int[] slots) {
+        gamePanel.placeCards(cards, slots);
+    }
+
+    @Override
+    public void removeCards(int[] slots) {
+        gamePanel.removeCards(slots);
+    }
+
     public void setCountdown(long millies, boolean warn) {
         timerPanel.setCountdown(millies, warn);
     }
@@ -1,6 +1,7 @@
 package bguspl.set;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * An interface for general utilities provided for convenience.
@@ -31,8 +32,16 @@ public interface Util {
     /**
      * Finds and returns up to count sets in the given collection of cards.
      * @param deck  - a collection of cards (may not include null objects).
-     * @param count - the maximum number of sets to find.
+     * @param count - the maximum number of sets to find (none if count is not positive).
      * @return      - a list of up to count integer arrays, each one contains the card ids of a legal set.
      */
     List<int[]> findSets(List<Integer> deck, int count);
+
+    /**
+     * Lazily produces the legal sets in the given cards. Sets are only searched for as the stream is consumed, so
+     * short-circuiting operations (e.g. findAny, limit) stop the search early. The stream may be made parallel.
+     * @param cards - an array of card ids (the array must not be modified while the stream is consumed).
+     * @return      - a stream of integer arrays, each one contains the card ids of a legal set.
+     */
+    Stream<int[]> streamSets(int[] cards);
 }
@@ -1,19 +1,49 @@
 package bguspl.set;
 
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The implementation of the UserInterface interface.
  */
 public class UtilImpl implements Util {
 
+    /**
+     * The number of cards from which findSets splits the search across the common fork-join pool.
+     */
+    private static final int PARALLEL_THRESHOLD = 243;
+
     private final Config config;
 
+    /**
+     * The features of every card in the deck, decoded once at construction (cardFeatures[card][feature]).
+     */
+    private final int[][] cardFeatures;
+
+    /**
+     * @throws IllegalArgumentException - if config.featureSize is above 64 (testSet keeps the values of a feature as
+     *                                    the bits of a long).
+     */
     public UtilImpl(Config config) {
+        if (config.featureSize > Long.SIZE)
+            throw new IllegalArgumentException("FeatureSize is " + config.featureSize + ", at most " + Long.SIZE + " is supported.");
         this.config = config;
+        cardFeatures = new int[config.deckSize][config.featureCount];
+        for (int card = 0; card < config.deckSize; ++card)
+            cardToFeatures(card, cardFeatures[card]);
     }
 
     private void cardToFeatures(int card, int[] features) {
@@ -25,39 +55,27 @@ public class UtilImpl implements Util {
 
     @Override
     public int[] cardToFeatures(int card) {
-        int[] features = new int[config.featureCount];
-        cardToFeatures(card, features);
-        return features;
+        return cardFeatures[card].clone();
     }
 
     @Override
     public int[][] cardsToFeatures(int[] cards) {
-        int[][] features = new int[cards.length][config.featureCount];
-        IntStream.range(0, cards.length).forEach(i -> cardToFeatures(cards[i], features[i]));
+        int[][] features = new int[cards.length][];
+        IntStream.range(0, cards.length).forEach(i -> features[i] = cardToFeatures(cards[i]));
         return features;
     }
 
     @Override
     public boolean testSet(int[] cards) {
-        int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
         for (int i = 0; i < config.featureCount; ++i) {
-            boolean sameSame = true, butDifferent = true;
-
-            // check if this features is sameSame in all cards
-            for (int j = 1; j < features.length; ++j)
-                if (features[0][i] != features[j][i]) {
-                    sameSame = false;
-                    break;
-                }
-
-            // check if this feature is butDifferent in all cards
-            for (int j = 1; j < features.length; ++j)
-                for (int k = j; k < features.length; ++k)
-                    if (features[j - 1][i] == features[k][i]) {
-                        butDifferent = false;
-                        break;
-                    }
+            // collect the values of this feature as a bitmask: one bit per distinct value
+            long values = 0;
+            for (int card : cards)
+                values |= 1L << cardFeatures[card][i];
 
+            int distinct = Long.bitCount(values);
+            boolean sameSame = distinct == 1;
+            boolean butDifferent = distinct == cards.length;
             if (sameSame == butDifferent) return false;
         }
         return true;
@@ -65,27 +83,220 @@ public class UtilImpl implements Util {
 
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
-        LinkedList<int[]> sets = new LinkedList<>();
-        int n = deck.size();
-        int r = config.featureSize;
+        if (count <= 0)
+            return new LinkedList<>();
+        int[] cards = deck.stream().mapToInt(Integer::intValue).toArray();
+        if (cards.length >= PARALLEL_THRESHOLD)
+            return findSetsParallel(cards, count);
+        return streamSets(cards).limit(count).collect(Collectors.toCollection(LinkedList::new));
+    }
+
+    @Override
+    public Stream<int[]> streamSets(int[] cards) {
+        return StreamSupport.stream(new SetSpliterator(cards, presence(cards), 0, cards.length), false);
+    }
+
+    /**
+     * A spliterator over the sets whose first card index is in the range [from, to).
+     * The sets of one first card are searched at a time, when the previous ones were consumed.
+     */
+    private class SetSpliterator implements Spliterator<int[]> {
+
+        private final int[] cards;
+        private final long[] present;
+        private int from;
+        private final int to;
+        private final Queue<int[]> buffer = new ArrayDeque<>();
+
+        private SetSpliterator(int[] cards, long[] present, int from, int to) {
+            this.cards = cards;
+            this.present = present;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super int[]> action) {
+            while (buffer.isEmpty() && from < to)
+                searchFrom(cards, present, from++, buffer::add);
+            if (buffer.isEmpty())
+                return false;
+            action.accept(buffer.poll());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super int[]> action) {
+            while (!buffer.isEmpty())
+                action.accept(buffer.poll());
+            while (from < to)
+                searchFrom(cards, present, from++, set -> {
+                    action.accept(set);
+                    return true;
+                });
+        }
+
+        @Override
+        public Spliterator<int[]> trySplit() {
+            if (!buffer.isEmpty() || to - from < 2)
+                return null;
+            int middle = (from + to) >>> 1;
+            Spliterator<int[]> prefix = new SetSpliterator(cards, present, from, middle);
+            from = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | NONNULL;
+        }
+    }
+
+    /**
+     * Finds sets with a fork-join search, where each task covers a range of first cards.
+     * Stops all tasks as soon as count sets were found.
+     */
+    private List<int[]> findSetsParallel(int[] cards, int count) {
+        Queue<int[]> sets = new ConcurrentLinkedQueue<>();
+        AtomicInteger remaining = new AtomicInteger(count);
+        long[] present = presence(cards);
+        ForkJoinPool.commonPool().invoke(new SetSearch(cards, present, 0, cards.length, remaining, set -> {
+            if (remaining.getAndDecrement() <= 0)
+                return false;
+            sets.add(set);
+            return remaining.get() > 0;
+        }));
+        return new LinkedList<>(sets);
+    }
+
+    /**
+     * Receives the sets found by a search.
+     */
+    private interface SetSink {
+        /**
+         * @param set - the card ids of a legal set (sorted).
+         * @return    - true iff the search should go on.
+         */
+        boolean accept(int[] set);
+    }
+
+    /**
+     * A fork-join task that searches for sets whose first card index is in the range [from, to).
+     */
+    private class SetSearch extends RecursiveAction {
+
+        private static final int GRAIN = 8;
+
+        private final int[] cards;
+        private final long[] present;
+        private final int from;
+        private final int to;
+        private final AtomicInteger remaining;
+        private final SetSink sink;
+
+        private SetSearch(int[] cards, long[] present, int from, int to, AtomicInteger remaining, SetSink sink) {
+            this.cards = cards;
+            this.present = present;
+            this.from = from;
+            this.to = to;
+            this.remaining = remaining;
+            this.sink = sink;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new SetSearch(cards, present, from, middle, remaining, sink),
+                        new SetSearch(cards, present, middle, to, remaining, sink));
+            } else {
+                for (int i = from; i < to && remaining.get() > 0; ++i)
+                    if (!searchFrom(cards, present, i, sink)) return;
+            }
+        }
+    }
+
+    /**
+     * Creates a bitmap of the given cards, indexed by card id.
+     */
+    private long[] presence(int[] cards) {
+        long[] present = new long[(config.deckSize + 63) / 64];
+        for (int card : cards)
+            present[card >>> 6] |= 1L << card;
+        return present;
+    }
+
+    /**
+     * Reports every set whose first card (in the order of the cards array) is cards[first].
+     * @return - false iff the sink asked to stop the search.
+     */
+    private boolean searchFrom(int[] cards, long[] present, int first, SetSink sink) {
+        if (config.featureSize == 3)
+            return completeFrom(cards, present, first, sink);
+        return combineFrom(cards, first, sink);
+    }
+
+    /**
+     * Returns the only card that forms a legal set together with the two given cards.
+     * Note: only meaningful when config.featureSize == 3, where each feature of the third card is (-a-b) mod 3.
+     */
+    private int thirdCard(int first, int second) {
+        int card = 0;
+        for (int i = 0; i < config.featureCount; ++i)
+            card = card * 3 + (6 - cardFeatures[first][i] - cardFeatures[second][i]) % 3;
+        return card;
+    }
+
+    /**
+     * Finds sets in O(n) per first card by completing each pair and looking the third card up in the presence
+     * bitmap. Each set is reported once, from the pair of its two smaller card ids.
+     */
+    private boolean completeFrom(int[] cards, long[] present, int first, SetSink sink) {
+        for (int j = first + 1; j < cards.length; ++j) {
+            int a = Math.min(cards[first], cards[j]), b = Math.max(cards[first], cards[j]);
+            int c = thirdCard(a, b);
+            if (c > b && (present[c >>> 6] & (1L << c)) != 0)
+                if (!sink.accept(new int[]{a, b, c}))
+                    return false;
+        }
+        return true;
+    }
+
+    /**
+     * Tests every combination of featureSize cards that starts with cards[first].
+     */
+    private boolean combineFrom(int[] cards, int first, SetSink sink) {
+        int n = cards.length - first - 1;
+        int r = config.featureSize - 1;
+        if (n < r) return true;
         int[] combination = new int[r];
+        int[] set = new int[r + 1];
 
         for (int i = 0; i < r; ++i)
             combination[i] = i;
 
-        while (combination[r - 1] < deck.size()) {
-            int[] cards = Arrays.stream(combination).map(deck::get).sorted().toArray();
-            if (testSet(cards)) {
-                sets.add(cards);
-                if (sets.size() >= count) return sets;
+        while (true) {
+            set[0] = cards[first];
+            for (int i = 0; i < r; ++i)
+                set[i + 1] = cards[first + 1 + combination[i]];
+            if (testSet(set)) {
+                int[] found = set.clone();
+                Arrays.sort(found);
+                if (!sink.accept(found))
+                    return false;
             }
 
             // generate next combination in lexicographic order
             int t = r - 1;
-            while (t != 0 && combination[t] == n - r + t) --t;
+            while (t >= 0 && combination[t] == n - r + t) --t;
+            if (t < 0) return true;
             combination[t]++;
             for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
         }
-        return sets;
     }
 }
@@ -35,7 +35,7 @@ public class WindowManager implements WindowListener {
 
     @Override
     public void windowClosing(WindowEvent e) {
-        env.logger.log(Level.SEVERE, "Exit button pressed");
+        env.logger.log(Level.INFO, "Exit button pressed");
         dealer.terminate();
         try { mainThread.join(); } catch (InterruptedException ignored) {}
         env.logger.log(Level.INFO, "Thanks for playing... it was fun!");
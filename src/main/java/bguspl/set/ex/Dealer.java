@@ -1,12 +1,24 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
-import bguspl.set.UtilImpl;
+import bguspl.set.Histogram;
+import bguspl.set.Journal;
+import bguspl.set.Metrics;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.Semaphore;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -21,7 +33,6 @@ public class Dealer implements Runnable {
      */
     private final Env env;
 
-    private final UtilImpl utilimpl;
     /**
      * Game entities.
      */
@@ -38,26 +49,102 @@ public class Dealer implements Runnable {
      */
     private volatile boolean terminate;
 
+    /**
+     * True once the table ran out of sets and the rest of the deck has none either (set by the dealer thread).
+     */
+    private boolean gameOver;
+
+    /**
+     * The seed of the shuffles (and of the computer players' key presses), recorded so the game can be replayed.
+     */
+    final long seed;
+    private final Random random;
+
     /**
      * The time when the dealer needs to reshuffle the deck due to turn timeout.
      */
     private long reshuffleTime = Integer.MAX_VALUE; // will change before the time loop
 
-    private long sleepTime = 100; // the time (in milliseconds) that the dealer need to sleep
+    /**
+     * The countdown display resolution (in milliseconds) inside the turn timeout warning window.
+     */
+    private static final long WARNING_TICK_MILLIS = 10;
+
+    /**
+     * The possible results of a set claim.
+     */
+    public enum Verdict {
+        POINT,   // the cards form a legal set
+        PENALTY, // the cards do not form a legal set
+        STALE    // the player's tokens changed (e.g. the cards left the table) before the claim was checked
+    }
+
+    /**
+     * A set claimed by a player, waiting to be checked by the dealer.
+     */
+    private static class Claim {
+        final int player;
+        final int[] cards;
+        final CompletableFuture<Verdict> verdict = new CompletableFuture<>();
+        final long submitted = System.nanoTime();
+
+        Claim(int player, int[] cards) {
+            this.player = player;
+            this.cards = cards;
+        }
+    }
 
-    private final Semaphore sem;
-    private long lastUpdate; //the last time we updated the time
-    private final Object waitForCards;
+    /**
+     * The claims submitted by the players, checked by the dealer thread in order of arrival.
+     */
+    private final BlockingQueue<Claim> claims;
+
+    /**
+     * The dealer thread waits on this condition until the next display update or until it is woken up.
+     * (a j.u.c lock rather than a monitor, so a waiting virtual thread is not pinned to its carrier)
+     */
+    private final Lock wakeUpLock;
+    private final Condition wakeUp;
+    private boolean wokenUp; // guarded by wakeUpLock, so a wake up is not lost while the dealer is busy
+
+    /**
+     * The time (in milliseconds) until a player's freeze countdown display needs to change.
+     */
+    private long freezeSleepTime = Long.MAX_VALUE;
+
+    /**
+     * The measurements of the dealer (see Metrics), and the time of the next metrics report.
+     */
+    private final Histogram claimVerdict;
+    private final Histogram claimQueue;
+    private final Histogram findSets;
+    private final Histogram deal;
+    private final LongAdder[] claimCounts;
+    private long nextMetricsReport;
 
     public Dealer(Env env, Table table, Player[] players) {
+        this(env, table, players, env.config.seed);
+    }
+
+    public Dealer(Env env, Table table, Player[] players, long seed) {
         this.env = env;
         this.table = table;
         this.players = players;
+        this.seed = seed;
+        random = new Random(seed);
         deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
-        utilimpl = new UtilImpl(env.config);
-        sem = new Semaphore(1); //we only want one player to access dealer each time
-        lastUpdate = 0;
-        waitForCards = new Object();
+        claims = new LinkedBlockingQueue<>();
+        wakeUpLock = new ReentrantLock();
+        wakeUp = wakeUpLock.newCondition();
+
+        claimVerdict = env.metrics.histogram(Metrics.CLAIM_VERDICT);
+        claimQueue = env.metrics.histogram(Metrics.CLAIM_QUEUE);
+        findSets = env.metrics.histogram(Metrics.FIND_SETS_DECK);
+        deal = env.metrics.histogram(Metrics.DEAL);
+        claimCounts = new LongAdder[players.length];
+        for (int i = 0; i < claimCounts.length; i++)
+            claimCounts[i] = env.metrics.counter(Metrics.CLAIMS + i);
+        nextMetricsReport = System.currentTimeMillis() + env.config.metricsIntervalMillis;
     }
 
     /**
@@ -69,16 +156,16 @@ public class Dealer implements Runnable {
 
         CreatePlayersThreads(); // creating players threads
 
-        shuffleCards();
+        start();
 
         while (!shouldFinish()) {
             placeCardsOnTable();
             timerLoop(); //for one minute
-            updateTimerDisplay(true); //reset after one minute
-            removeAllCardsFromTable();
-            shuffleCards();
+            if (!gameOver)
+                timeout();
         }
         announceWinners();
+        reportMetrics(true);
         env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
     }
 
@@ -87,12 +174,49 @@ public class Dealer implements Runnable {
      */
     private void timerLoop() {
         reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis;
-        while (!terminate && System.currentTimeMillis() < reshuffleTime) {
-            sleepUntilWokenOrTimeout(); //basically sleep for a second
-            updateTimerDisplay(false); //need to change function - check if we need to update seconds
+        updateTimerDisplay(false);
+        while (!terminate && !gameOver && System.currentTimeMillis() < reshuffleTime) {
+            sleepUntilWokenOrTimeout(); //until the displayed countdown changes or a claim arrives
+            checkClaims();
+            updateTimerDisplay(false);
+            updateFreezeDisplays();
+            reportMetrics(false);
         }
     }
 
+    /**
+     * Logs the metrics report of the game, if it is due (see config.metricsIntervalMillis).
+     *
+     * @param end - true at the end of the game.
+     */
+    private void reportMetrics(boolean end) {
+        long interval = env.config.metricsIntervalMillis;
+        long now = System.currentTimeMillis();
+        if (interval < 0 || !end && (interval == 0 || now < nextMetricsReport))
+            return;
+        nextMetricsReport = now + interval;
+        env.logger.log(Level.INFO, "metrics" + (env.name.isEmpty() ? "" : " of " + env.name) + ":" + env.metrics.report());
+    }
+
+    /**
+     * Starts the game: records its seed and shuffles the deck.
+     */
+    void start() {
+        env.logger.log(Level.INFO, "shuffling the deck with seed " + seed);
+        env.journal.record(Journal.Event.START, -1, players.length, seed);
+        shuffleCards();
+    }
+
+    /**
+     * Ends the turn: returns all the cards on the table to the deck and reshuffles it.
+     */
+    void timeout() {
+        env.journal.record(Journal.Event.TIMEOUT, -1, 0, 0);
+        updateTimerDisplay(true); //reset after one minute
+        removeAllCardsFromTable();
+        shuffleCards();
+    }
+
     /**
      * Called when the game should be terminated due to an external event.
      */
@@ -100,6 +224,40 @@ public class Dealer implements Runnable {
         for (Player p : players)
             p.terminate();
         terminate = true;
+        for (Claim claim; (claim = claims.poll()) != null; )
+            claim.verdict.complete(Verdict.STALE);
+        wakeUp();
+    }
+
+    /**
+     * Submits a set claim to be checked by the dealer thread. Called by the player threads.
+     *
+     * @param player - the id of the claiming player.
+     * @param cards  - the cards the player placed its tokens on.
+     * @return       - the verdict of the dealer, completed once the claim was checked.
+     */
+    public Future<Verdict> submitClaim(int player, int[] cards) {
+        Claim claim = new Claim(player, cards);
+        claimCounts[player].increment();
+        env.journal.record(Journal.Event.CLAIM, player, cards.length, Journal.pack(cards));
+        claims.add(claim);
+        wakeUp();
+        if (terminate && claims.remove(claim))
+            claim.verdict.complete(Verdict.STALE);
+        return claim.verdict;
+    }
+
+    /**
+     * Wakes the dealer thread up before its next scheduled display update.
+     */
+    void wakeUp() {
+        wakeUpLock.lock();
+        try {
+            wokenUp = true;
+            wakeUp.signalAll();
+        } finally {
+            wakeUpLock.unlock();
+        }
     }
 
     /**
@@ -107,49 +265,58 @@ public class Dealer implements Runnable {
      *
      * @return true iff the game should be finished.
      */
-    private boolean shouldFinish() {
-        return terminate || env.util.findSets(deck, 1).size() == 0;
+    boolean shouldFinish() {
+        if (terminate || gameOver)
+            return true;
+        long start = System.nanoTime();
+        boolean noSet = !env.util.streamSets(deck.stream().mapToInt(Integer::intValue).toArray()).findAny().isPresent();
+        findSets.record(System.nanoTime() - start);
+        return noSet;
     }
 
     /**
      * Checks cards should be removed from the table and removes them.
      */
     private void removeCardsFromTable(int[] cards) {
-        for (Player p: players) { //do wait to all players
+        for (Player p: players) //do wait to all players
             p.setIsCardDealt(false);
-            p.PlayerWait();
-        }
-
-        for (int cardId : cards) { // remove the cards of the set from the table and the deck
-            try {
-                int slot = table.cardToSlot[cardId];
-                table.removeCard(slot);
-            } catch (Exception ignored) {}
-        }
 
+        // remove the cards of the set from the table and the deck
+        table.removeCards(Arrays.stream(cards).filter(cardId -> table.cardToSlot[cardId] != null)
+                .map(cardId -> table.cardToSlot[cardId]).toArray());
     }
 
     /**
      * Check if any cards can be removed from the deck and placed on the table.
      */
-    private void placeCardsOnTable() {
+    void placeCardsOnTable() {
+        long start = System.nanoTime();
+        dealCards();
+        deal.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Deals the cards of placeCardsOnTable, and deals again (recursively) after removing a table without a legal set.
+     */
+    private void dealCards() {
         if (table.countCards() < env.config.tableSize &&
                 deck.size() >= env.config.tableSize - table.countCards()) {
-            for (int i = 0; i < table.slotToCard.length; i++) {
-                if (table.slotToCard[i] == null)
-                    table.placeCard(deck.remove(0), i);
-            }
+            int[] slots = IntStream.range(0, table.slotToCard.length).filter(i -> table.slotToCard[i] == null).toArray();
+            int[] cards = new int[slots.length];
+            for (int i = 0; i < slots.length; i++)
+                cards[i] = deck.remove(0);
+            table.placeCards(cards, slots);
         }
         // if there is no legal set on the table
-        List<Integer> cards = new ArrayList<>();
-        try {
-            Collections.addAll(cards, table.slotToCard);
-        } catch (Exception e) {terminate = true;}
-        boolean legalSetExists = utilimpl.findSets(cards, 1).size() > 0;
-        if (!legalSetExists) {
+        if (!table.legalSetExists() && table.countCards() > 0) {
             try {
                 removeAllCardsFromTable();
-                placeCardsOnTable();
+                if (shouldFinish())
+                    gameOver = true; // no more sets: the game ends without waiting for the turn timeout
+                else {
+                    shuffleCards(); // otherwise the same cards may come back (e.g. a small deck dealt in rotation)
+                    dealCards();
+                }
             } catch(Exception ignored) {}
         }
 
@@ -159,22 +326,41 @@ public class Dealer implements Runnable {
         // notify all the players that they can return playing
         for (Player p: players)
             p.setIsCardDealt(true);
-        try {
-            synchronized (waitForCards) {waitForCards.notifyAll();}
-        }
-        catch (Exception ignored) {}
     }
 
-    private void shuffleCards() {
-        Collections.shuffle(deck);
+    void shuffleCards() {
+        env.journal.record(Journal.Event.RESHUFFLE, -1, deck.size(), 0);
+        Collections.shuffle(deck, random);
     }
 
     /**
-     * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
+     * Sleep until the displayed countdown needs to change or until the thread is awakened for some purpose.
+     * Outside the warning window the display shows whole seconds, so the dealer sleeps until the next second
+     * boundary; inside it, the display shows hundredths and the dealer ticks every WARNING_TICK_MILLIS.
      */
     private void sleepUntilWokenOrTimeout() {
-        try {Thread.sleep(sleepTime);
-        } catch (InterruptedException ignored) {}
+        long timeLeft = reshuffleTime - System.currentTimeMillis();
+        if (timeLeft <= 0) return;
+
+        long warningLeft = timeLeft - env.config.turnTimeoutWarningMillis;
+        long sleepTime;
+        if (warningLeft <= 0)
+            sleepTime = Math.min(WARNING_TICK_MILLIS, timeLeft);
+        else {
+            long toNextSecond = timeLeft % 1000 + 1; // the displayed seconds are rounded down
+            sleepTime = Math.min(toNextSecond, warningLeft);
+        }
+        sleepTime = Math.min(sleepTime, freezeSleepTime);
+
+        wakeUpLock.lock();
+        try {
+            if (!wokenUp)
+                wakeUp.await(sleepTime, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ignored) {
+        } finally {
+            wokenUp = false;
+            wakeUpLock.unlock();
+        }
     }
 
     /**
@@ -184,43 +370,98 @@ public class Dealer implements Runnable {
         if (reset) {
             env.ui.setCountdown(env.config.turnTimeoutMillis, false);
         } else {
-            //check if a second has passed since last update, if yes that update countdown
-            //else, change sleepTime to the difference
-            int SECOND = 1000;
-            long timeLeft = reshuffleTime - System.currentTimeMillis();
+            long timeLeft = Math.max(0, reshuffleTime - System.currentTimeMillis());
             boolean isRed = timeLeft < env.config.turnTimeoutWarningMillis;
             env.ui.setCountdown(timeLeft, isRed);
-            sleepTime = SECOND / 100;
         }
+    }
 
+    /**
+     * Advances the freeze countdown of every frozen player and schedules the next freeze display update.
+     */
+    private void updateFreezeDisplays() {
+        long now = System.currentTimeMillis();
+        freezeSleepTime = Long.MAX_VALUE;
+        for (Player p : players)
+            freezeSleepTime = Math.min(freezeSleepTime, p.updateFreezeDisplay(now));
     }
 
     /**
      * Returns all the cards from the table to the deck.
      */
     private void removeAllCardsFromTable() {
-        for (Player p : players) { //all players should wait while there are no cards
+        for (Player p : players) //all players should wait while there are no cards
             p.setIsCardDealt(false);
-            p.PlayerWait();
-        }
         env.ui.removeTokens();
         // adds the cards from the table to the deck and resets the arrays
-        for (int i = 0; i < table.slotToCard.length; i++) {
-            deck.add(table.slotToCard[i]);
-            table.removeCard(i);
-        }
+        int[] slots = IntStream.range(0, table.slotToCard.length)
+                .filter(i -> table.slotToCard[i] != null).toArray(); //the deck may have run out of cards for some slots
+        for (int slot : slots)
+            deck.add(table.slotToCard[slot]);
+        table.removeCards(slots);
     }
 
-    public void checkIfSet(int playerId, int[] cards) {
+    /**
+     * Checks all the pending claims, in the order they were submitted.
+     * A claim is stale if the player's tokens no longer match the claimed cards (e.g. since a previous claim
+     * removed some of them from the table).
+     */
+    private void checkClaims() {
+        while (!terminate && checkNextClaim());
+    }
+
+    /**
+     * Checks the oldest pending claim.
+     *
+     * @return - false iff there was no pending claim.
+     */
+    private boolean checkNextClaim() {
+        Claim claim = claims.poll();
+        if (claim == null)
+            return false;
+        check(claim);
+        return true;
+    }
+
+    /**
+     * Checks the pending claim of a player (each player has at most one, as it waits for the verdict).
+     *
+     * @return - false iff the player had no pending claim.
+     */
+    boolean checkClaimOf(int player) {
+        for (Claim claim : claims)
+            if (claim.player == player && claims.remove(claim)) {
+                check(claim);
+                return true;
+            }
+        return false;
+    }
+
+    private void check(Claim claim) {
+        env.journal.record(Journal.Event.CHECK, claim.player, 0, 0);
+        claimQueue.record(System.nanoTime() - claim.submitted);
+        Verdict verdict = !table.isCheck(claim.player) || !Arrays.equals(table.getPlayerCards(claim.player), claim.cards)
+                ? Verdict.STALE
+                : checkIfSet(claim.player, claim.cards);
+        claimVerdict.record(System.nanoTime() - claim.submitted);
+        claim.verdict.complete(verdict);
+    }
+
+    /**
+     * Checks if the given cards of a player form a legal set, and awards or penalizes the player.
+     */
+    Verdict checkIfSet(int playerId, int[] cards) {
         Player p = players[playerId];
-        boolean isSet = utilimpl.testSet(cards);
+        boolean isSet = env.util.testSet(cards);
 
         if (isSet) {
             p.point();
             removeCardsFromTable(cards); //need to also update the tokens
             placeCardsOnTable();
-        } else
-            p.penalty();
+            return Verdict.POINT;
+        }
+        p.penalty();
+        return Verdict.PENALTY;
     }
 
     /**
@@ -246,19 +487,13 @@ public class Dealer implements Runnable {
 
     private void CreatePlayersThreads() {
         String[] names = env.config.playerNames;
-        for (Player p : players)
-        {
-            p.setSemaphore(this.sem); //giving each player the same semaphore
-            p.setLockObject(this.waitForCards); //giving each player the same lock object
-        }
-
         for (int i = 0; i < players.length; i++) {
             Thread player;
             if (i < names.length)
-                player = new Thread(players[i], names[i]);
+                player = env.newThread(players[i], names[i]);
             else {
                 String name = "PLAYER " + i;
-                player = new Thread(players[i], name);
+                player = env.newThread(players[i], name);
             }
 
             player.start();
@@ -1,11 +1,17 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.Histogram;
+import bguspl.set.Journal;
+import bguspl.set.Metrics;
 
-import java.util.LinkedList;
-import java.util.Queue;
 import java.util.Random;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 
 /**
@@ -34,12 +40,17 @@ public class Player implements Runnable {
     /**
      * The thread representing the current player.
      */
-    private Thread playerThread;
+    private volatile Thread playerThread;
 
     /**
      * The thread of the AI (computer) player (an additional thread used to generate key presses).
      */
-    private Thread aiThread;
+    private volatile Thread aiThread;
+
+    /**
+     * The key presses of the AI player (null for a human player), set by the player thread.
+     */
+    private Strategy strategy;
 
     /**
      * True iff the player is human (not a computer player).
@@ -56,11 +67,46 @@ public class Player implements Runnable {
      */
     private int score;
 
-    private Queue<Integer> actionQueue;
+    /**
+     * A key press: the slot and the time it was pressed (System.nanoTime).
+     */
+    private static class KeyPress {
+        final int slot;
+        final long pressed = System.nanoTime();
+
+        KeyPress(int slot) {
+            this.slot = slot;
+        }
+    }
+
+    /**
+     * The pending key presses (bounded by the number of cards in a set).
+     */
+    private final BlockingQueue<KeyPress> actionQueue;
+
+    /**
+     * The time from a key press to its token on the table (see Metrics).
+     */
+    private final Histogram keyToToken;
     private Dealer dealer;
-    private Semaphore sem;
-    private Object waitForCards;
-    private boolean isCardDealt;
+    private volatile boolean isCardDealt;
+
+    /**
+     * Signalled when the dealer finished dealing the cards (a j.u.c lock, so waiting virtual threads are not pinned).
+     */
+    private final Lock cardsLock = new ReentrantLock();
+    private final Condition cardsDealt = cardsLock.newCondition();
+
+    /**
+     * The time (in milliseconds) until which the player is frozen and its key presses are ignored.
+     */
+    private volatile long freezeUntil;
+
+    /**
+     * The remaining freeze time (in milliseconds) currently shown in the ui (0 if none), guarded by freezeLock.
+     */
+    private long displayedFreeze;
+    private final Lock freezeLock = new ReentrantLock();
 
     /**
      * The class constructor.
@@ -76,7 +122,8 @@ public class Player implements Runnable {
         this.table = table;
         this.id = id;
         this.human = human;
-        this.actionQueue = new LinkedList<>();
+        this.actionQueue = new ArrayBlockingQueue<>(env.config.featureSize);
+        this.keyToToken = env.metrics.histogram(Metrics.KEY_TO_TOKEN);
         this.dealer = dealer;
         isCardDealt = false;
     }
@@ -88,27 +135,38 @@ public class Player implements Runnable {
     public void run() {
         playerThread = Thread.currentThread();
         env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
-        PlayerWait(); //waiting until all cards are dealt
+        try {
+            waitForCards(); //waiting until all cards are dealt
+        } catch (InterruptedException ignored) {}
 
         if (!human) createArtificialIntelligence();
 
         while (!terminate) {
-            if (actionQueue.size() > 0)
-            {
-                int action = actionQueue.poll(); //slot
-                //implement action
-                table.makeAction(id,action);
-                //ask table if we have 3 tokens
-                boolean hasSet = table.isCheck(id);
-                if (hasSet) {
-                    try { //manages that only one player can go to the dealer each time
-                        sem.acquire();
-                        int[] cards = table.getPlayerCards(id);
-                        dealer.checkIfSet(id, cards);
-                    }
-                    catch (InterruptedException ignored) {}
-                    sem.release();
+            KeyPress keyPress;
+            try {
+                keyPress = actionQueue.take(); //blocks until a key is pressed
+            } catch (InterruptedException e) {
+                continue; //woken up to check for termination
+            }
+            if (isFrozen()) { //key presses made before the freeze are dropped
+                if (strategy != null) strategy.keyHandled();
+                continue;
+            }
+            int action = keyPress.slot;
+            env.journal.record(Journal.Event.ACTION, id, action, 0);
+            //implement action
+            table.makeAction(id,action);
+            keyToToken.record(System.nanoTime() - keyPress.pressed);
+            if (strategy != null) strategy.keyHandled();
+            //ask table if we have 3 tokens
+            boolean hasSet = table.isCheck(id);
+            if (hasSet) {
+                try { //the dealer checks the claim while the other players keep playing
+                    int[] cards = table.getPlayerCards(id);
+                    if (cards != null) //null if the dealer just removed one of the cards
+                        dealer.submitClaim(id, cards).get();
                 }
+                catch (InterruptedException | ExecutionException ignored) {}
             }
         }
         if (!human) try { aiThread.join(); } catch (InterruptedException ignored) {}
@@ -116,29 +174,22 @@ public class Player implements Runnable {
     }
 
     /**
-     * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly generates
-     * key presses. If the queue of key presses is full, the thread waits until it is not full.
+     * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly asks the
+     * strategy (see config.computerStrategy) for key presses. If the queue of key presses is full, the thread waits
+     * until it is not full.
      */
     private void createArtificialIntelligence() {
-        // note: this is a very very smart AI (!)
-        aiThread = new Thread(() -> {
+        Random rand = new Random(dealer.seed + id + 1); // reproducible key presses for a given seed
+        strategy = env.config.computerStrategy.equalsIgnoreCase("Smart")
+                ? new SmartStrategy(env, table, id, rand)
+                : new RandomStrategy(env, rand);
+        aiThread = env.newThread(() -> {
             env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
             while (!terminate) {
                 try {
-                    while (!isCardDealt) {
-                        synchronized (waitForCards) {
-                            waitForCards.wait(); //waiting in the beginning until cards are dealt
-                        }
-                    }
-                } catch (Exception ignored) {}
-
-                //need to generate random number between 0-11
-                Random rand = new Random();
-                int slot = rand.nextInt(12);
-                keyPressed(slot);
-                try {Thread.sleep(1); //to make it no so fast
-                } catch (InterruptedException ignored) {}
-
+                    waitForCards(); //no key presses while the dealer deals the cards
+                    actionQueue.put(new KeyPress(strategy.nextKey())); //waits while the queue of key presses is full
+                } catch (InterruptedException ignored) {} //woken up to check for termination
             }
 
             env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
@@ -151,7 +202,8 @@ public class Player implements Runnable {
      */
     public void terminate() {
         terminate = true;
-        Thread.currentThread().interrupt();
+        if (playerThread != null) playerThread.interrupt();
+        if (aiThread != null) aiThread.interrupt();
     }
 
     /**
@@ -160,8 +212,8 @@ public class Player implements Runnable {
      * @param slot - the slot corresponding to the key pressed.
      */
     public void keyPressed(int slot) {
-        if (actionQueue.size() < 3)
-            actionQueue.add(slot);
+        if (!isFrozen())
+            actionQueue.offer(new KeyPress(slot)); //the key press is dropped if the queue is full
     }
 
     /**
@@ -170,61 +222,94 @@ public class Player implements Runnable {
      * @post - the player's score is increased by 1.
      * @post - the player's score is updated in the ui.
      */
-    public void point() { //need to add that sleep only for a second
+    public void point() {
         env.ui.setScore(id, ++score);
-        long freezeTime = env.config.pointFreezeMillis;
-        long updateTime = 1000; //second
-        env.ui.setFreeze(this.id, freezeTime);
-        while (freezeTime > 0) {
-            try {Thread.sleep(updateTime);
-            } catch (InterruptedException ignored) {}
-            freezeTime -= updateTime;
-            env.ui.setFreeze(this.id,freezeTime);
-        }
+        env.journal.record(Journal.Event.POINT, id, score, 0);
+        freeze(env.config.pointFreezeMillis);
     }
 
     /**
      * Penalize a player and perform other related actions.
      */
     public void penalty() {
-        long freezeTime = env.config.penaltyFreezeMillis;
-        long updateTime = 1000; //second
-        env.ui.setFreeze(this.id, freezeTime);
-        while (freezeTime > 0) {
-            try {Thread.sleep(updateTime);
-            } catch (InterruptedException ignored) {}
-            freezeTime -= updateTime;
-            env.ui.setFreeze(this.id,freezeTime);
+        env.journal.record(Journal.Event.PENALTY, id, 0, 0);
+        freeze(env.config.penaltyFreezeMillis);
+    }
+
+    /**
+     * Freezes the player for the given time without blocking the calling thread. The freeze countdown in the ui
+     * is then advanced by the dealer (see updateFreezeDisplay).
+     */
+    private void freeze(long millis) {
+        freezeUntil = System.currentTimeMillis() + millis;
+        freezeLock.lock();
+        try {
+            displayedFreeze = millis;
+            env.ui.setFreeze(id, millis);
+        } finally {
+            freezeLock.unlock();
         }
     }
 
-    public int getScore() {
-        return score;
+    private boolean isFrozen() {
+        return System.currentTimeMillis() < freezeUntil;
     }
 
-    public void setSemaphore(Semaphore sem)
-    {
-        this.sem = sem;
+    /**
+     * Updates the freeze countdown in the ui if the displayed (whole seconds) value has changed.
+     *
+     * @param now - the current time in milliseconds.
+     * @return    - the time (in milliseconds) until the display needs to be updated again (Long.MAX_VALUE if never).
+     */
+    long updateFreezeDisplay(long now) {
+        freezeLock.lock();
+        try {
+            long remaining = freezeUntil - now;
+            if (remaining <= 0) {
+                if (displayedFreeze > 0) {
+                    displayedFreeze = 0;
+                    env.ui.setFreeze(id, 0);
+                }
+                return Long.MAX_VALUE;
+            }
+
+            long display = (remaining + 999) / 1000 * 1000; // the displayed seconds are rounded up
+            if (display != displayedFreeze) {
+                displayedFreeze = display;
+                env.ui.setFreeze(id, display);
+            }
+            return remaining % 1000 == 0 ? 1000 : remaining % 1000;
+        } finally {
+            freezeLock.unlock();
+        }
     }
 
-    public void setLockObject(Object obj)
-    {
-        this.waitForCards = obj;
+    public int getScore() {
+        return score;
     }
 
     public void setIsCardDealt(boolean isCardDealt)
     {
-        this.isCardDealt = isCardDealt;
+        cardsLock.lock();
+        try {
+            this.isCardDealt = isCardDealt;
+            if (isCardDealt)
+                cardsDealt.signalAll();
+        } finally {
+            cardsLock.unlock();
+        }
     }
 
-    public void PlayerWait() {
-        try{
-            while (isCardDealt) {
-                synchronized (waitForCards) {
-                    waitForCards.wait(); //waiting in the beginning until cards are dealt
-                }
-            }
-        } catch (Exception ignored) {
+    /**
+     * Waits until the dealer finished dealing the cards.
+     */
+    private void waitForCards() throws InterruptedException {
+        cardsLock.lock();
+        try {
+            while (!isCardDealt && !terminate)
+                cardsDealt.await();
+        } finally {
+            cardsLock.unlock();
         }
     }
 }
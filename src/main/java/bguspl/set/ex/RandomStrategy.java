@@ -0,0 +1,28 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Random;
+
+/**
+ * Presses a random slot every millisecond (a load test for the player and dealer threads, not a realistic player).
+ */
+public class RandomStrategy implements Strategy {
+
+    private final Env env;
+    private final Random random;
+
+    /**
+     * @param random - the random generator of the player (see Dealer.seed).
+     */
+    public RandomStrategy(Env env, Random random) {
+        this.env = env;
+        this.random = random;
+    }
+
+    @Override
+    public int nextKey() throws InterruptedException {
+        Thread.sleep(1); //to make it no so fast
+        return random.nextInt(env.config.tableSize);
+    }
+}
@@ -0,0 +1,178 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.HeadlessUserInterface;
+import bguspl.set.Journal;
+import bguspl.set.UtilImpl;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Replays a recorded game on the calling thread, without a user interface and as fast as possible.
+ *
+ * The dealer is seeded with the seed of the recorded game, and the recorded inputs are applied in the order they
+ * were recorded: the key presses taken by the players and their claims, and the dealer's claim checks and turn
+ * timeouts. The dealer's outputs (deals, collected cards, points, penalties and reshuffles) must match the recorded
+ * ones. Each time the replayed dealer records an output, it is paused until the player inputs that were recorded
+ * before that output are applied, so the players' actions interleave with the dealer's steps as in the recorded
+ * game (up to the granularity of the journal).
+ * A change of the dealer logic, or a race that the order of the journal does not capture, shows up as a divergence.
+ */
+public class Replay implements Journal {
+
+    /**
+     * The recorded actions of the dealer that the replay has to reproduce.
+     */
+    private static final Set<Event> OUTPUTS = EnumSet.of(Event.DEAL, Event.COLLECT, Event.POINT, Event.PENALTY,
+            Event.RESHUFFLE);
+
+    /**
+     * Thrown (to the replay loop) when the replayed dealer does not record the output that the recorded dealer did.
+     */
+    private static class Divergence extends RuntimeException {
+        Divergence() {
+            super(null, null, false, false);
+        }
+    }
+
+    private final Logger logger;
+    private final Config config;
+    private final List<Entry> recorded;
+
+    /**
+     * The actions recorded by the replayed game.
+     */
+    private final List<Entry> replayed = new ArrayList<>();
+
+    /**
+     * The index of the next recorded action to apply (or to match).
+     */
+    private int cursor;
+
+    private Player[] players;
+    private Table table;
+    private Dealer dealer;
+
+    /**
+     * @param config   - the configuration of the recorded game.
+     * @param recorded - the journal of the recorded game (see MappedJournal.read).
+     */
+    public Replay(Logger logger, Config config, List<Entry> recorded) {
+        this.logger = logger;
+        this.config = config;
+        this.recorded = recorded;
+    }
+
+    /**
+     * Replays the game.
+     *
+     * @return - the index of the first recorded action that the replayed game does not reproduce, or -1 if the
+     *           replayed game is identical.
+     * @throws IllegalArgumentException - if the journal does not match the configuration.
+     */
+    public int run() {
+        Entry start = recorded.stream().filter(entry -> entry.event == Event.START).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("the journal does not record the start of a game."));
+        if (start.value != config.players)
+            throw new IllegalArgumentException("the journal records " + start.value + " players, the configuration " + config.players + ".");
+
+        Env env = new Env(logger, config, new HeadlessUserInterface(logger, config), new UtilImpl(config), Thread::new,
+                "replay", this);
+        players = new Player[config.players];
+        table = new Table(env);
+        dealer = new Dealer(env, table, players, start.data);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, i < config.humanPlayers);
+
+        cursor = 0;
+        try {
+            while (cursor < recorded.size())
+                replay(recorded.get(cursor++));
+        } catch (Divergence e) {
+            logger.log(Level.WARNING, "the replayed game diverges from the recorded game at action " + cursor + ": "
+                    + (cursor < recorded.size() ? recorded.get(cursor) : "the end of the game") + " was not reproduced"
+                    + " (the last replayed action is " + replayed.get(replayed.size() - 1) + ").");
+            return cursor;
+        }
+        logger.log(Level.INFO, "the replayed game is identical to the recorded game (" + recorded.size() + " actions).");
+        return -1;
+    }
+
+    private void replay(Entry entry) {
+        switch (entry.event) {
+            case START:
+                dealer.start();
+                if (!dealer.shouldFinish())
+                    dealer.placeCardsOnTable();
+                break;
+            case ACTION:
+                table.makeAction(entry.player, entry.value);
+                break;
+            case CLAIM:
+                dealer.submitClaim(entry.player, Journal.unpack(entry.data, entry.value));
+                break;
+            case CHECK:
+                dealer.checkClaimOf(entry.player); // not the oldest claim: a claim is recorded before it is queued
+                break;
+            case TIMEOUT:
+                dealer.timeout();
+                if (!dealer.shouldFinish())
+                    dealer.placeCardsOnTable();
+                break;
+            default:
+                if (OUTPUTS.contains(entry.event)) { // an output that the replayed dealer did not make
+                    cursor--;
+                    throw new Divergence();
+                }
+        }
+    }
+
+    /**
+     * @return - the scores of the players at the end of the replay.
+     */
+    public int[] scores() {
+        int[] scores = new int[players.length];
+        for (int i = 0; i < players.length; i++)
+            scores[i] = players[i].getScore();
+        return scores;
+    }
+
+    /**
+     * @return - the actions recorded by the replayed game.
+     */
+    public List<Entry> replayed() {
+        return replayed;
+    }
+
+    /**
+     * Records an action of the replayed game. An output of the dealer is matched against the recorded game, after
+     * applying the player inputs that were recorded before it.
+     */
+    @Override
+    public void record(Event event, int player, int value, long data) {
+        Entry entry = new Entry(0, event, player, value, data);
+        replayed.add(entry);
+        if (!OUTPUTS.contains(event))
+            return;
+
+        for (; cursor < recorded.size(); cursor++) {
+            Entry next = recorded.get(cursor);
+            if (OUTPUTS.contains(next.event) || next.event == Event.START || next.event == Event.CHECK
+                    || next.event == Event.TIMEOUT)
+                break; // an action of the dealer
+            replay(next);
+        }
+        if (cursor == recorded.size() || !recorded.get(cursor).sameAction(entry))
+            throw new Divergence();
+        cursor++;
+    }
+
+    @Override
+    public void close() {}
+}
@@ -0,0 +1,178 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+import bguspl.set.Histogram;
+import bguspl.set.Metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Plays like a person: spots a set on the table after a reaction time, then presses its keys one by one.
+ * The spotted set is a legal set with probability config.computerAccuracy (otherwise it is a random guess).
+ * Before each key press the strategy looks at the table again, so it spots a new set when a card of its set left the
+ * table, and it first removes its tokens from the cards that are not in the set (e.g. after a penalty). It also waits
+ * until the player thread handled the previous key press, so it looks at the player's actual tokens.
+ */
+public class SmartStrategy implements Strategy {
+
+    private final Env env;
+    private final Table table;
+    private final int player;
+    private final Random random;
+
+    /**
+     * The duration of the set searches (see Metrics).
+     */
+    private final Histogram findSets;
+
+    /**
+     * The cards of the spotted set and their slots (null if none was spotted yet).
+     */
+    private int[] cards;
+    private int[] slots;
+
+    /**
+     * True from the return of a key press until the player thread handled it, and the condition signalled then
+     * (a j.u.c lock, so the waiting virtual thread is not pinned).
+     */
+    private boolean pressPending;
+    private final Lock pressLock = new ReentrantLock();
+    private final Condition pressHandled = pressLock.newCondition();
+
+    /**
+     * @param player - the id of the player.
+     * @param random - the random generator of the player (see Dealer.seed).
+     */
+    public SmartStrategy(Env env, Table table, int player, Random random) {
+        this.env = env;
+        this.table = table;
+        this.player = player;
+        this.random = random;
+        this.findSets = env.metrics.histogram(Metrics.FIND_SETS_TABLE);
+    }
+
+    @Override
+    public int nextKey() throws InterruptedException {
+        awaitPress();
+        while (true) {
+            Integer[] board = table.getCards();
+            if (cards == null || !onTable(board)) {
+                Thread.sleep(reactionTime());
+                spot(table.getCards());
+                continue;
+            }
+
+            int slot = nextSlot();
+            if (slot >= 0) {
+                Thread.sleep(env.config.computerKeyDelayMillis);
+                setPressPending(true);
+                return slot;
+            }
+            cards = null; // all the tokens are placed and the set was claimed: look at the table again
+        }
+    }
+
+    @Override
+    public void keyHandled() {
+        setPressPending(false);
+    }
+
+    private void setPressPending(boolean pending) {
+        pressLock.lock();
+        try {
+            pressPending = pending;
+            if (!pending)
+                pressHandled.signalAll();
+        } finally {
+            pressLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the player thread handled the previous key press, so the next key is chosen from the player's
+     * actual tokens (pressing a slot again before its press is applied would toggle the token back off).
+     */
+    private void awaitPress() throws InterruptedException {
+        pressLock.lock();
+        try {
+            while (pressPending)
+                pressHandled.await();
+        } finally {
+            pressLock.unlock();
+        }
+    }
+
+    /**
+     * A reaction time between half and one and a half times the configured average.
+     */
+    private long reactionTime() {
+        return (long) (env.config.computerReactionMillis * (0.5 + random.nextDouble()));
+    }
+
+    /**
+     * Chooses the set to press: a legal set on the table, or (with probability 1 - accuracy) a random guess.
+     */
+    private void spot(Integer[] board) {
+        List<Integer> onBoard = new ArrayList<>();
+        for (Integer card : board)
+            if (card != null)
+                onBoard.add(card);
+        cards = null;
+        if (onBoard.size() < env.config.featureSize)
+            return;
+
+        if (random.nextDouble() < env.config.computerAccuracy) {
+            long start = System.nanoTime();
+            List<int[]> sets = env.util.findSets(onBoard, Integer.MAX_VALUE);
+            findSets.record(System.nanoTime() - start);
+            if (!sets.isEmpty())
+                cards = sets.get(random.nextInt(sets.size()));
+        }
+        if (cards == null) { // a guess
+            cards = new int[env.config.featureSize];
+            for (int i = 0; i < cards.length; i++)
+                cards[i] = onBoard.remove(random.nextInt(onBoard.size()));
+        }
+
+        slots = new int[cards.length];
+        for (int i = 0; i < cards.length; i++)
+            slots[i] = Arrays.asList(board).indexOf(cards[i]);
+    }
+
+    /**
+     * Checks that the cards of the spotted set are still in their slots.
+     */
+    private boolean onTable(Integer[] board) {
+        for (int i = 0; i < cards.length; i++)
+            if (board[slots[i]] == null || board[slots[i]] != cards[i])
+                return false;
+        return true;
+    }
+
+    /**
+     * Returns the slot to press next: first a token to remove, then a token to place (-1 if none).
+     */
+    private int nextSlot() {
+        int[] tokens = table.getPlayerSlots(player);
+        for (int token : tokens)
+            if (!contains(slots, token))
+                return token;
+        for (int slot : slots)
+            if (!contains(tokens, slot))
+                return slot;
+        return -1;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values)
+            if (v == value)
+                return true;
+        return false;
+    }
+}
@@ -0,0 +1,21 @@
+package bguspl.set.ex;
+
+/**
+ * This interface decides the key presses of a computer player. It is called by the player's AI thread only.
+ */
+public interface Strategy {
+
+    /**
+     * Returns the slot of the next key press, after waiting as long as the player takes to press it.
+     *
+     * @return - the slot corresponding to the key to press.
+     * @throws InterruptedException - if the AI thread is interrupted (e.g. when the game terminates).
+     */
+    int nextKey() throws InterruptedException;
+
+    /**
+     * Called by the player thread when it handled a key press returned by nextKey: applied it to the table, or
+     * dropped it because the player is frozen.
+     */
+    default void keyHandled() {}
+}
@@ -1,14 +1,19 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.Journal;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Objects;
-import java.util.logging.Level;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
 import java.util.stream.Collectors;
 /**
  * This class contains the data that is visible to the player.
+ * The cards are only placed and removed by the dealer thread, which publishes each change under the write lock of
+ * boardLock; the player threads read the board without locking (optimistic reads, validated against the lock's stamp).
+ * The tokens are updated lock-free by the player threads and the dealer thread.
  *
  * @inv slotToCard[x] == y iff cardToSlot[y] == x
  */
@@ -29,8 +34,25 @@ public class Table {
      */
     protected final Integer[] cardToSlot; // slot per card (if any)
 
-    private Integer[][] tokens; //tokens[playerId][slot1,slot2, slot3]
-    private Integer[] numOfTokens; //represents how many placed tokens each player have
+    /**
+     * Guards slotToCard and cardToSlot: written by the dealer under the write lock, read optimistically by players.
+     */
+    private final StampedLock boardLock;
+
+    /**
+     * The slots each player placed tokens on, as a bitmask (bit i is set iff the player has a token on slot i).
+     */
+    private AtomicLongArray playerSlots;
+
+    /**
+     * The players that placed tokens on each slot, as a bitmask (bit i is set iff player i has a token on the slot).
+     */
+    private AtomicLongArray slotPlayers;
+
+    /**
+     * The legal sets currently on the table (maintained incrementally by placeCard and removeCard).
+     */
+    private final List<int[]> liveSets;
 
     /**
      * Constructor for testing.
@@ -43,7 +65,17 @@ public class Table {
         this.env = env;
         this.slotToCard = slotToCard;
         this.cardToSlot = cardToSlot;
+        this.liveSets = new ArrayList<>();
+        this.boardLock = new StampedLock();
         initializeData();
+
+        // index the sets of the cards that are already on the table
+        List<Integer> others = new ArrayList<>();
+        for (Integer card : slotToCard)
+            if (card != null) {
+                addLiveSets(card, others);
+                others.add(card);
+            }
     }
 
     /**
@@ -59,8 +91,7 @@ public class Table {
      * This method prints all possible legal sets of cards that are currently on the table.
      */
     public void hints() {
-        List<Integer> deck = Arrays.stream(slotToCard).filter(Objects::nonNull).collect(Collectors.toList());
-        env.util.findSets(deck, Integer.MAX_VALUE).forEach(set -> {
+        liveSets.forEach(set -> {
             StringBuilder sb = new StringBuilder().append("Hint: Set found: ");
             List<Integer> slots = Arrays.stream(set).mapToObj(card -> cardToSlot[card]).sorted().collect(Collectors.toList());
             int[][] features = env.util.cardsToFeatures(set);
@@ -68,6 +99,15 @@ public class Table {
         });
     }
 
+    /**
+     * Checks if there is at least one legal set among the cards currently on the table.
+     *
+     * @return - true iff a legal set exists on the table.
+     */
+    public boolean legalSetExists() {
+        return !liveSets.isEmpty();
+    }
+
     /**
      * Count the number of cards currently on the table.
      *
@@ -93,8 +133,15 @@ public class Table {
             Thread.sleep(env.config.tableDelayMillis);
         } catch (InterruptedException ignored) {}
 
-        cardToSlot[card] = slot;
-        slotToCard[slot] = card;
+        long stamp = boardLock.writeLock();
+        try {
+            cardToSlot[card] = slot;
+            slotToCard[slot] = card;
+        } finally {
+            boardLock.unlockWrite(stamp);
+        }
+        env.journal.record(Journal.Event.DEAL, -1, card, slot);
+        addLiveSets(card);
 
         env.ui.placeCard(card,slot);
     }
@@ -110,36 +157,101 @@ public class Table {
 
 
         int card = slotToCard[slot];
-        //first delete the tokens
-        for (int i = 0; i < tokens.length;i++) //for each player
-        {
-            int playerTokens = numOfTokens[i];
-            for (int j = 0; j < playerTokens; j++) //check all his tokens
-            {
-                if (tokens[i][j] == slot) //if he has a token that will be deleted
-                    removeToken(i,slot);
-            }
+        long stamp = boardLock.writeLock();
+        try {
+            slotToCard[slot] = null;
+            cardToSlot[card] = null;
+        } finally {
+            boardLock.unlockWrite(stamp);
         }
+        env.journal.record(Journal.Event.COLLECT, -1, card, slot);
+
+        //then delete the tokens of all the players on this slot (a token placed concurrently sees the empty slot)
+        for (long players = slotPlayers.get(slot); players != 0; players &= players - 1)
+            removeToken(Long.numberOfTrailingZeros(players), slot);
 
-        slotToCard[slot] = null;
-        cardToSlot[card] = null;
+        liveSets.removeIf(set -> contains(set, card));
         env.ui.removeCard(slot);
     }
 
+    /**
+     * Places several cards on the table at once: the whole deal is published to the players atomically, and the ui
+     * is updated (and animated) in one pass, so the caller does not wait for the table delay of each card.
+     * @param cards - the card ids to place.
+     * @param slots - the slots in which the cards should be placed (respectively).
+     *
+     * @post - the cards placed are on the table, in the assigned slots.
+     */
+    public void placeCards(int[] cards, int[] slots) {
+        List<Integer> others = new ArrayList<>();
+        for (Integer other : slotToCard)
+            if (other != null)
+                others.add(other);
+
+        long stamp = boardLock.writeLock();
+        try {
+            for (int i = 0; i < cards.length; i++) {
+                cardToSlot[cards[i]] = slots[i];
+                slotToCard[slots[i]] = cards[i];
+            }
+        } finally {
+            boardLock.unlockWrite(stamp);
+        }
+        for (int i = 0; i < cards.length; i++) { // each new set is indexed once, by its last placed card
+            env.journal.record(Journal.Event.DEAL, -1, cards[i], slots[i]);
+            addLiveSets(cards[i], others);
+            others.add(cards[i]);
+        }
+
+        env.ui.placeCards(cards, slots);
+    }
+
+    /**
+     * Removes several cards from the table at once (see placeCards).
+     * @param slots - the slots from which to remove the cards (empty slots are skipped).
+     */
+    public void removeCards(int[] slots) {
+        int[] cards = new int[slots.length];
+        long stamp = boardLock.writeLock();
+        try {
+            for (int i = 0; i < slots.length; i++) {
+                Integer card = slotToCard[slots[i]];
+                cards[i] = card == null ? -1 : card;
+                if (card == null) continue;
+                slotToCard[slots[i]] = null;
+                cardToSlot[card] = null;
+            }
+        } finally {
+            boardLock.unlockWrite(stamp);
+        }
+
+        for (int i = 0; i < slots.length; i++) {
+            if (cards[i] < 0) continue;
+            int slot = slots[i], card = cards[i];
+            env.journal.record(Journal.Event.COLLECT, -1, card, slot);
+            for (long players = slotPlayers.get(slot); players != 0; players &= players - 1)
+                removeToken(Long.numberOfTrailingZeros(players), slot);
+            liveSets.removeIf(set -> contains(set, card));
+        }
+        env.ui.removeCards(slots);
+    }
+
     /**
      * Places a player token on a grid slot.
      * @param player - the player the token belongs to.
      * @param slot   - the slot on which to place the token.
      */
     public void placeToken(int player, int slot) {
-        int tokenOfPlayer = numOfTokens[player];
-        if (tokenOfPlayer < 3) //add slot to token
-        {
-            tokens[player][tokenOfPlayer] = slot;
-            numOfTokens[player]++;
+        Integer card = cardAt(slot);
+        if (card == null || !addToken(player, slot)) //add slot to token (only on a card)
+            return;
 
-            env.ui.placeToken(player,slot);
+        if (!card.equals(cardAt(slot))) { //the card was removed while the token was placed
+            clearToken(player, slot);
+            return;
         }
+        env.journal.record(Journal.Event.TOKEN_PLACED, player, slot, card);
+        env.ui.placeToken(player,slot);
     }
 
     /**
@@ -149,68 +261,188 @@ public class Table {
      * @return       - true iff a token was successfully removed.
      */
     public boolean removeToken(int player, int slot) {
-        Integer[] playersAction = tokens[player];
-        int tokenOfPlayer = numOfTokens[player];
-        boolean isRemoved = false;
-        for (int i = 0; i < tokenOfPlayer - 1; i++)
-        {
-            if (!isRemoved) {
-                if (playersAction[i] == slot) //here should delete the slot
-                {
-                    playersAction[i] = playersAction[i + 1];
-                    isRemoved = true;
-                }
-            }
-            else{
-                playersAction[i] = playersAction[i + 1];
-            }
-        }
-
-        playersAction[tokenOfPlayer - 1] = -1; // not really necessary but to be sure
-        numOfTokens[player]--;
-        tokens[player] = playersAction;
+        if (!clearToken(player, slot))
+            return false;
+        env.journal.record(Journal.Event.TOKEN_REMOVED, player, slot, 0);
         env.ui.removeToken(player,slot);
         return true;
     }
 
     // checks if we placed token, if so then removes, else, puts the token
     public void makeAction(int player, int slot) {
-        Integer[] playerTokens = this.tokens[player];
-        for (Integer playerToken : playerTokens)
-            if (playerToken == slot) { // remove token
-                removeToken(player, slot);
-                return;
-            }
-        //add token
-        placeToken(player, slot);
+        if (!removeToken(player, slot))
+            placeToken(player, slot);
     }
 
     public boolean isCheck(int player)
     {
-        return numOfTokens[player] == 3; //returns true if we have 3 tokens
+        return Long.bitCount(playerSlots.get(player)) == env.config.featureSize; //returns true if we have 3 tokens
     }
 
+    /**
+     * Returns the cards the player placed tokens on, read as one consistent snapshot of the board.
+     * @param player - the player.
+     * @return       - the cards (in slot order), or null if a token is on a slot that has no card anymore.
+     */
     public int[] getPlayerCards(int player)
     {
-        Integer[] playerTokens = tokens[player];
+        long slots = playerSlots.get(player);
+        int[] res = new int[Long.bitCount(slots)];
 
-        int[] res = new int[3];
-        for (int i = 0; i < numOfTokens[player]; i++) {
-            res[i] = slotToCard[playerTokens[i]];
+        long stamp = boardLock.tryOptimisticRead();
+        boolean complete = readCards(slots, res);
+        if (!boardLock.validate(stamp)) {
+            stamp = boardLock.readLock();
+            try {
+                complete = readCards(slots, res);
+            } finally {
+                boardLock.unlockRead(stamp);
+            }
         }
+        return complete ? res : null;
+    }
 
+    /**
+     * Returns the slots the player placed tokens on (in slot order).
+     */
+    public int[] getPlayerSlots(int player) {
+        long slots = playerSlots.get(player);
+        int[] res = new int[Long.bitCount(slots)];
+        for (int i = 0; slots != 0; slots &= slots - 1, i++)
+            res[i] = Long.numberOfTrailingZeros(slots);
         return res;
     }
 
-    private void initializeData() {
-        this.tokens = new Integer[env.config.players][3];
-        this.numOfTokens = new Integer[env.config.players];
+    /**
+     * Returns the cards on the table, read as one consistent snapshot of the board.
+     * @return - the card in each slot (null if none).
+     */
+    public Integer[] getCards() {
+        long stamp = boardLock.tryOptimisticRead();
+        Integer[] cards = slotToCard.clone();
+        if (boardLock.validate(stamp))
+            return cards;
+
+        stamp = boardLock.readLock();
+        try {
+            return slotToCard.clone();
+        } finally {
+            boardLock.unlockRead(stamp);
+        }
+    }
+
+    private boolean readCards(long slots, int[] res) {
+        for (int i = 0; slots != 0; slots &= slots - 1, i++) { // in slot order
+            Integer card = slotToCard[Long.numberOfTrailingZeros(slots)];
+            if (card == null)
+                return false;
+            res[i] = card;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the card in a slot (null if none), without blocking unless the dealer is changing the board.
+     */
+    private Integer cardAt(int slot) {
+        long stamp = boardLock.tryOptimisticRead();
+        Integer card = slotToCard[slot];
+        if (boardLock.validate(stamp))
+            return card;
+
+        stamp = boardLock.readLock();
+        try {
+            return slotToCard[slot];
+        } finally {
+            boardLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Atomically adds a token of the player on the slot, unless it is already there or the player has no tokens left.
+     * @return - true iff the token was added.
+     */
+    private boolean addToken(int player, int slot) {
+        long slotBit = 1L << slot;
+        long slots;
+        do {
+            slots = playerSlots.get(player);
+            if ((slots & slotBit) != 0 || Long.bitCount(slots) >= env.config.featureSize)
+                return false;
+        } while (!playerSlots.compareAndSet(player, slots, slots | slotBit));
+        slotPlayers.getAndAccumulate(slot, 1L << player, (players, playerBit) -> players | playerBit);
+        return true;
+    }
+
+    /**
+     * Atomically removes the token of the player from the slot.
+     * @return - true iff the token was there (and this call removed it).
+     */
+    private boolean clearToken(int player, int slot) {
+        long slotBit = 1L << slot;
+        long previous = playerSlots.getAndAccumulate(player, ~slotBit, (slots, mask) -> slots & mask);
+        if ((previous & slotBit) == 0)
+            return false;
+        slotPlayers.getAndAccumulate(slot, ~(1L << player), (players, mask) -> players & mask);
+        return true;
+    }
+
+    /**
+     * Adds to the live sets index every legal set that the newly placed card forms with the other cards on the table.
+     * @param card - the card that was placed.
+     */
+    private void addLiveSets(int card) {
+        List<Integer> others = new ArrayList<>();
+        for (Integer other : slotToCard)
+            if (other != null && other != card)
+                others.add(other);
+        addLiveSets(card, others);
+    }
+
+    /**
+     * Adds to the live sets index every legal set that the card forms with the given other cards.
+     * @param card   - the card that was placed.
+     * @param others - the cards to complete sets with.
+     */
+    private void addLiveSets(int card, List<Integer> others) {
+        int r = env.config.featureSize - 1; // the number of other cards needed to complete a set
+        int n = others.size();
+        if (n < r) return;
+        int[] combination = new int[r];
+        int[] set = new int[r + 1];
+        for (int i = 0; i < r; ++i)
+            combination[i] = i;
 
-        for (Integer[] token: tokens)
-        {
-            Arrays.fill(token,-1);
+        while (true) {
+            for (int i = 0; i < r; ++i)
+                set[i] = others.get(combination[i]);
+            set[r] = card;
+            if (env.util.testSet(set)) {
+                int[] found = set.clone();
+                Arrays.sort(found);
+                liveSets.add(found);
+            }
+
+            // generate next combination in lexicographic order
+            int t = r - 1;
+            while (t >= 0 && combination[t] == n - r + t) --t;
+            if (t < 0) return;
+            combination[t]++;
+            for (int i = t + 1; i < r; i++) combination[i] = combination[i - 1] + 1;
         }
+    }
 
-        Arrays.fill(numOfTokens,0);
+    private static boolean contains(int[] set, int card) {
+        for (int c : set)
+            if (c == card)
+                return true;
+        return false;
+    }
+
+    private void initializeData() {
+        if (env.config.tableSize > Long.SIZE || env.config.players > Long.SIZE)
+            throw new IllegalArgumentException("the token bitmasks support up to " + Long.SIZE + " slots and players.");
+        this.playerSlots = new AtomicLongArray(env.config.players);
+        this.slotPlayers = new AtomicLongArray(env.config.tableSize);
     }
 }
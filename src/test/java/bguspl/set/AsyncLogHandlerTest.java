@@ -0,0 +1,123 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncLogHandlerTest {
+
+    /**
+     * Collects the written records; the writer waits for the gate before writing, so the buffer can be filled up.
+     */
+    static class MockHandler extends Handler {
+        final List<String> messages = new CopyOnWriteArrayList<>();
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        boolean closed;
+
+        @Override
+        public void publish(LogRecord record) {
+            writing.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException ignored) {}
+            messages.add(record.getMessage());
+        }
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private final MockHandler target = new MockHandler();
+    private AsyncLogHandler handler;
+
+    @AfterEach
+    void tearDown() {
+        target.gate.countDown();
+        handler.close();
+    }
+
+    /**
+     * Logs m0, waits until the writer holds it, then fills the buffer while the writer waits at the gate.
+     */
+    private void logWhileWriterWaits() throws InterruptedException {
+        logAll(0, 1);
+        target.writing.await();
+        logAll(1, 20);
+        target.gate.countDown();
+        handler.close();
+    }
+
+    private void logAll(int from, int to) {
+        for (int i = from; i < to; i++)
+            handler.publish(new LogRecord(Level.INFO, "m" + i));
+    }
+
+    @Test
+    void flush_ReturnsOnceThePublishedRecordsAreWritten() {
+        handler = new AsyncLogHandler(target, 8, AsyncLogHandler.DropPolicy.BLOCK);
+        target.gate.countDown();
+        logAll(0, 50);
+
+        handler.flush();
+
+        assertEquals(50, target.messages.size());
+    }
+
+    @Test
+    void close_WritesAllRecordsInOrder() {
+        handler = new AsyncLogHandler(target, 4, AsyncLogHandler.DropPolicy.BLOCK);
+        target.gate.countDown();
+        logAll(0, 100);
+
+        handler.close();
+
+        assertEquals(100, target.messages.size());
+        for (int i = 0; i < 100; i++)
+            assertEquals("m" + i, target.messages.get(i));
+        assertTrue(target.closed);
+    }
+
+    @Test
+    void publish_DropNewestKeepsTheBufferedRecords() throws InterruptedException {
+        handler = new AsyncLogHandler(target, 4, AsyncLogHandler.DropPolicy.DROP_NEWEST);
+        logWhileWriterWaits();
+
+        assertEquals(Arrays.asList("m0", "15 log records were dropped (log buffer full).", "m1", "m2", "m3", "m4"),
+                target.messages);
+    }
+
+    @Test
+    void publish_DropOldestKeepsTheLatestRecords() throws InterruptedException {
+        handler = new AsyncLogHandler(target, 4, AsyncLogHandler.DropPolicy.DROP_OLDEST);
+        logWhileWriterWaits();
+
+        assertEquals(Arrays.asList("m0", "15 log records were dropped (log buffer full).", "m16", "m17", "m18", "m19"),
+                target.messages);
+    }
+
+    @Test
+    void parse_AcceptsConfigNames() {
+        handler = new AsyncLogHandler(target, 1, AsyncLogHandler.DropPolicy.BLOCK);
+
+        assertEquals(AsyncLogHandler.DropPolicy.DROP_NEWEST, AsyncLogHandler.DropPolicy.parse(" DropNewest"));
+        assertEquals(AsyncLogHandler.DropPolicy.DROP_OLDEST, AsyncLogHandler.DropPolicy.parse("drop_oldest"));
+        assertThrows(IllegalArgumentException.class, () -> AsyncLogHandler.DropPolicy.parse("Lose"));
+    }
+}
@@ -0,0 +1,138 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class DispatchingUserInterfaceTest {
+
+    /**
+     * Records the calls it receives (from the event dispatch thread only).
+     */
+    private final List<String> calls = new ArrayList<>();
+    private boolean offEdt;
+
+    private DispatchingUserInterface ui;
+
+    private class MockUserInterface implements UserInterface {
+        private void call(String call) {
+            offEdt |= !EventQueue.isDispatchThread();
+            calls.add(call);
+        }
+
+        @Override
+        public void placeCard(int card, int slot) {
+            call("placeCard " + card + " " + slot);
+        }
+        @Override
+        public void removeCard(int slot) {
+            call("removeCard " + slot);
+        }
+        @Override
+        public void placeCards(int[] cards, int[] slots) {
+            call("placeCards " + Arrays.toString(cards) + " " + Arrays.toString(slots));
+        }
+        @Override
+        public void removeCards(int[] slots) {
+            call("removeCards " + Arrays.toString(slots));
+        }
+        @Override
+        public void setCountdown(long millies, boolean warn) {
+            call("setCountdown " + millies);
+        }
+        @Override
+        public void setElapsed(long millies) {
+            call("setElapsed " + millies);
+        }
+        @Override
+        public void setScore(int player, int score) {
+            call("setScore " + player + " " + score);
+        }
+        @Override
+        public void setFreeze(int player, long millies) {
+            call("setFreeze " + player + " " + millies);
+        }
+        @Override
+        public void placeToken(int player, int slot) {
+            call("placeToken " + player + " " + slot);
+        }
+        @Override
+        public void removeTokens() {
+            call("removeTokens");
+        }
+        @Override
+        public void removeTokens(int slot) {
+            call("removeTokens " + slot);
+        }
+        @Override
+        public void removeToken(int player, int slot) {
+            call("removeToken " + player + " " + slot);
+        }
+        @Override
+        public void announceWinner(int[] players) {
+            call("announceWinner " + Arrays.toString(players));
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        ui = new DispatchingUserInterface(new MockUserInterface(), 2);
+    }
+
+    /**
+     * Makes the calls while the event dispatch thread is busy, then waits until they are applied.
+     */
+    private void callWhileEdtIsBusy(Runnable calls) throws InterruptedException, InvocationTargetException {
+        CountDownLatch busy = new CountDownLatch(1);
+        EventQueue.invokeLater(() -> {
+            try {
+                busy.await();
+            } catch (InterruptedException ignored) {}
+        });
+        calls.run();
+        busy.countDown();
+        EventQueue.invokeAndWait(() -> {});
+    }
+
+    @Test
+    void updates_AppliedInOrderOnTheEdt() throws InterruptedException, InvocationTargetException {
+        int[] slots = {0, 1};
+        callWhileEdtIsBusy(() -> {
+            ui.placeCards(new int[]{5, 6}, slots);
+            slots[0] = 9; // reusing the array does not change the queued call
+            ui.placeToken(1, 0);
+            ui.setScore(1, 3);
+            ui.removeToken(1, 0);
+            ui.removeCards(new int[]{1});
+        });
+
+        assertEquals(Arrays.asList("placeCards [5, 6] [0, 1]", "placeToken 1 0", "setScore 1 3", "removeToken 1 0",
+                "removeCards [1]"), calls);
+        assertFalse(offEdt);
+    }
+
+    @Test
+    void timerAndFreeze_OnlyTheLatestValueIsApplied() throws InterruptedException, InvocationTargetException {
+        callWhileEdtIsBusy(() -> {
+            for (long millies = 60000; millies >= 50000; millies -= 10)
+                ui.setCountdown(millies, false);
+            ui.setFreeze(0, 3000);
+            ui.setFreeze(1, 1000);
+            ui.setFreeze(0, 2000);
+            ui.placeToken(0, 4);
+        });
+
+        assertEquals(Arrays.asList("placeToken 0 4", "setCountdown 50000", "setFreeze 0 2000", "setFreeze 1 1000"),
+                calls);
+        assertFalse(offEdt);
+    }
+}
@@ -0,0 +1,68 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistogramTest {
+
+    @Test
+    void bucket_CoversEachValueWithinItsPrecision() {
+        long[] values = {0, 1, 31, 32, 33, 63, 64, 1000, 123456789, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = Histogram.bucket(value);
+            long highest = Histogram.highestValue(bucket);
+
+            assertTrue(highest >= value, "value " + value);
+            assertTrue(bucket == 0 || Histogram.highestValue(bucket - 1) < value, "value " + value);
+            assertTrue(highest - value <= value / 16, "value " + value);
+        }
+        assertEquals(Histogram.bucket(Long.MAX_VALUE), Histogram.bucket(Long.MAX_VALUE - 1));
+    }
+
+    @Test
+    void percentile_OfUniformValues() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 10000; value++)
+            histogram.record(value * 1000);
+
+        assertEquals(10000, histogram.count());
+        assertEquals(5000500.0, histogram.mean(), 0.001);
+        assertEquals(10000000, histogram.max());
+        for (int percentile : new int[]{50, 90, 99}) {
+            long expected = percentile * 100000L;
+            long actual = histogram.percentile(percentile);
+            assertTrue(actual >= expected && actual <= expected + expected / 16, percentile + "th: " + actual);
+        }
+        assertEquals(10000000, histogram.percentile(100));
+    }
+
+    @Test
+    void percentile_NoValues() {
+        Histogram histogram = new Histogram();
+
+        assertEquals(0, histogram.percentile(99));
+        assertEquals(0, histogram.mean());
+    }
+
+    @Test
+    void record_FromSeveralThreads() throws InterruptedException {
+        Histogram histogram = new Histogram();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            int thread = i;
+            threads[i] = new Thread(() -> {
+                for (int value = 0; value < 10000; value++)
+                    histogram.record(thread * 10000 + value);
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        assertEquals(40000, histogram.count());
+        assertEquals(39999, histogram.max());
+        assertTrue(histogram.percentile(50) >= 20000);
+    }
+}
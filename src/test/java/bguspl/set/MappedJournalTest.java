@@ -0,0 +1,126 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void read_ReturnsTheRecordsInOrder() throws IOException {
+        Path file = directory.resolve("game.journal");
+        Journal journal = new MappedJournal(file);
+        journal.record(Journal.Event.DEAL, -1, 80, 11);
+        journal.record(Journal.Event.TOKEN_PLACED, 3, 11, 80);
+        journal.record(Journal.Event.CLAIM, 3, 3, Journal.pack(new int[]{1, 2, 80}));
+        journal.close();
+        journal.record(Journal.Event.PENALTY, 3, 0, 0); // ignored after close
+
+        List<Journal.Entry> entries = MappedJournal.read(file);
+
+        assertEquals(3, entries.size());
+        assertEquals(Journal.Event.DEAL, entries.get(0).event);
+        assertEquals(-1, entries.get(0).player);
+        assertEquals(80, entries.get(0).value);
+        assertEquals(11, entries.get(0).data);
+        assertEquals(Journal.Event.TOKEN_PLACED, entries.get(1).event);
+        assertEquals(3, entries.get(1).player);
+        assertArrayEquals(new int[]{1, 2, 80}, Journal.unpack(entries.get(2).data, entries.get(2).value));
+        assertTrue(entries.get(0).nanos <= entries.get(1).nanos && entries.get(1).nanos <= entries.get(2).nanos);
+    }
+
+    @Test
+    void read_ThrowsIfARecordIsMissing() throws IOException {
+        Path file = directory.resolve("game.journal");
+        Journal journal = new MappedJournal(file);
+        for (int i = 0; i < 3; i++)
+            journal.record(Journal.Event.ACTION, 0, i, 0);
+        journal.close();
+        assertEquals(3, MappedJournal.read(file).size());
+
+        eraseEvent(file, 3); // the last record, as if it was never written
+        assertThrows(IOException.class, () -> MappedJournal.read(file));
+    }
+
+    @Test
+    void read_JournalThatWasNotClosed() throws IOException {
+        Path file = directory.resolve("game.journal");
+        Journal journal = new MappedJournal(file);
+        for (int i = 0; i < 3; i++)
+            journal.record(Journal.Event.ACTION, 0, i, 0);
+
+        assertEquals(3, MappedJournal.read(file).size());
+        eraseEvent(file, 2);
+        assertThrows(IOException.class, () -> MappedJournal.read(file));
+        journal.close();
+    }
+
+    private static void eraseEvent(Path file, int record) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(2), (long) record * MappedJournal.RECORD_BYTES + 8);
+        }
+    }
+
+    @Test
+    void record_ConcurrentRecordsSpanSeveralChunks() throws IOException, InterruptedException {
+        Path file = directory.resolve("game.journal");
+        Journal journal = new MappedJournal(file);
+        int perThread = 50000;
+        Thread[] threads = new Thread[2];
+        for (int t = 0; t < threads.length; t++) {
+            int player = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++)
+                    journal.record(Journal.Event.TOKEN_REMOVED, player, i, 0);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        journal.close();
+
+        List<Journal.Entry> entries = MappedJournal.read(file);
+
+        assertEquals(threads.length * perThread, entries.size());
+        int[] expected = new int[threads.length];
+        for (Journal.Entry entry : entries) // the records of each thread are in the order they were made
+            assertEquals(expected[entry.player]++, entry.value);
+    }
+
+    @Test
+    void record_TimestampsIncreaseInFileOrderWithConcurrentWriters() throws IOException, InterruptedException {
+        Path file = directory.resolve("game.journal");
+        Journal journal = new MappedJournal(file);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int player = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20000; i++)
+                    journal.record(Journal.Event.ACTION, player, i, 0);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        journal.close();
+
+        List<Journal.Entry> entries = MappedJournal.read(file);
+
+        for (int i = 1; i < entries.size(); i++)
+            assertTrue(entries.get(i - 1).nanos <= entries.get(i).nanos, "record " + i);
+    }
+}
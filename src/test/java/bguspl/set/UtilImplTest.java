@@ -0,0 +1,160 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UtilImplTest {
+
+    UtilImpl util;
+
+    @BeforeEach
+    void setUp() {
+
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "4");
+        Logger logger = Logger.getLogger("UtilImplTest");
+        logger.setUseParentHandlers(false);
+        util = new UtilImpl(new Config(logger, properties));
+    }
+
+    @Test
+    void cardToFeatures_DecodesBaseFeatureSizeDigits() {
+
+        assertArrayEquals(new int[]{0, 0, 0, 0}, util.cardToFeatures(0));
+        assertArrayEquals(new int[]{0, 0, 1, 2}, util.cardToFeatures(5));
+        assertArrayEquals(new int[]{2, 2, 2, 2}, util.cardToFeatures(80));
+    }
+
+    @Test
+    void cardToFeatures_ReturnsACopy() {
+
+        util.cardToFeatures(5)[0] = 2;
+        assertArrayEquals(new int[]{0, 0, 1, 2}, util.cardToFeatures(5));
+    }
+
+    @Test
+    void testSet_AllSameButOneAllDifferent() {
+
+        // 0000, 0001, 0002
+        assertTrue(util.testSet(new int[]{0, 1, 2}));
+    }
+
+    @Test
+    void testSet_AllDifferent() {
+
+        // 0000, 1111, 2222
+        assertTrue(util.testSet(new int[]{0, 40, 80}));
+    }
+
+    @Test
+    void testSet_TwoSameOneDifferent() {
+
+        // 0000, 0001, 0011
+        assertFalse(util.testSet(new int[]{0, 1, 4}));
+    }
+
+    @Test
+    void constructor_RejectsFeatureSizeAbove64() {
+
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "65");
+        properties.put("FeatureCount", "1");
+        Logger logger = Logger.getLogger("UtilImplTest");
+        Config config = new Config(logger, properties);
+
+        assertThrows(IllegalArgumentException.class, () -> new UtilImpl(config));
+    }
+
+    @Test
+    void findSets_FullDeckHasAllSets() {
+
+        List<Integer> deck = IntStream.range(0, 81).boxed().collect(Collectors.toList());
+        List<int[]> sets = util.findSets(deck, Integer.MAX_VALUE);
+
+        assertEquals(1080, sets.size());
+        sets.forEach(set -> assertTrue(util.testSet(set)));
+    }
+
+    @Test
+    void findSets_StopsAtCount() {
+
+        List<Integer> deck = IntStream.range(0, 81).boxed().collect(Collectors.toList());
+        assertEquals(5, util.findSets(deck, 5).size());
+    }
+
+    @Test
+    void findSets_NonPositiveCountFindsNothing() {
+
+        List<Integer> deck = IntStream.range(0, 81).boxed().collect(Collectors.toList());
+        List<Integer> largeDeck = IntStream.range(0, 729).boxed().collect(Collectors.toList());
+        for (int count : new int[]{0, -1, Integer.MIN_VALUE}) {
+            assertTrue(util.findSets(deck, count).isEmpty());
+            assertTrue(util.findSets(largeDeck, count).isEmpty());
+        }
+    }
+
+    @Test
+    void findSets_NoSetInDeck() {
+
+        // 0000, 0001, 0011, 0010
+        List<Integer> deck = IntStream.of(0, 1, 4, 3).boxed().collect(Collectors.toList());
+        assertTrue(util.findSets(deck, Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void findSets_LargeDeckIsSearchedInParallel() {
+
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "6");
+        Logger logger = Logger.getLogger("UtilImplTest");
+        UtilImpl util = new UtilImpl(new Config(logger, properties));
+        List<Integer> deck = IntStream.range(0, 729).boxed().collect(Collectors.toList());
+
+        // every pair of cards completes to exactly one set: 729 * 728 / 6
+        List<int[]> sets = util.findSets(deck, Integer.MAX_VALUE);
+        assertEquals(88452, sets.size());
+        assertEquals(7, util.findSets(deck, 7).size());
+        sets.forEach(set -> assertTrue(util.testSet(set)));
+    }
+
+    @Test
+    void findSets_FeatureSizeFourCombinations() {
+
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "4");
+        properties.put("FeatureCount", "2");
+        Logger logger = Logger.getLogger("UtilImplTest");
+        UtilImpl util = new UtilImpl(new Config(logger, properties));
+        List<Integer> deck = IntStream.range(0, 16).boxed().collect(Collectors.toList());
+
+        // 4 rows, 4 columns and 4! permutations
+        List<int[]> sets = util.findSets(deck, Integer.MAX_VALUE);
+        assertEquals(32, sets.size());
+        sets.forEach(set -> assertTrue(util.testSet(set)));
+    }
+
+    @Test
+    void streamSets_IsLazyAndShortCircuits() {
+
+        int[] deck = IntStream.range(0, 81).toArray();
+
+        assertTrue(util.streamSets(deck).findAny().isPresent());
+        assertEquals(1080, util.streamSets(deck).count());
+        assertEquals(1080, util.streamSets(deck).parallel().count());
+        assertFalse(util.streamSets(new int[]{0, 1, 4, 3}).findAny().isPresent());
+    }
+}
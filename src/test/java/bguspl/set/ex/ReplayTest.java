@@ -0,0 +1,169 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.HeadlessUserInterface;
+import bguspl.set.Journal;
+import bguspl.set.MappedJournal;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayTest {
+
+    private Config config;
+    private Logger logger;
+
+    /**
+     * Records the game in memory, in the order of the calls.
+     */
+    private final List<Journal.Entry> recorded = new ArrayList<>();
+    private final Journal journal = new Journal() {
+        @Override
+        public void record(Event event, int player, int value, long data) {
+            recorded.add(new Entry(recorded.size(), event, player, value, data));
+        }
+
+        @Override
+        public void close() {}
+    };
+
+    private Table table;
+    private Dealer dealer;
+    private Player[] players;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "3");
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "3");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        properties.put("TableDelaySeconds", "0");
+        logger = Logger.getLogger("ReplayTest");
+        logger.setUseParentHandlers(false);
+        config = new Config(logger, properties);
+
+        Env env = new Env(logger, config, new HeadlessUserInterface(logger, config), new UtilImpl(config), Thread::new,
+                "", journal);
+        players = new Player[config.players];
+        table = new Table(env);
+        dealer = new Dealer(env, table, players, 42);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+    }
+
+    /**
+     * Presses the keys of the slots as the player thread would, and claims a set.
+     */
+    private void claim(int player, int... slots) {
+        for (int slot : slots) {
+            journal.record(Journal.Event.ACTION, player, slot, 0);
+            table.makeAction(player, slot);
+        }
+        dealer.submitClaim(player, table.getPlayerCards(player));
+    }
+
+    /**
+     * Plays a short game on the test thread, with the same calls the dealer and player threads make.
+     */
+    private void play() {
+        dealer.start();
+        dealer.placeCardsOnTable();
+
+        // a set claimed by both players (only the first one scores), then another claim of player 0
+        List<Integer> slots = new ArrayList<>();
+        int[] set = new UtilImpl(config).findSets(Arrays.asList(table.slotToCard), 1).get(0);
+        for (int card : set)
+            slots.add(table.cardToSlot[card]);
+        claim(1, slots.get(0), slots.get(1), slots.get(2));
+        claim(0, slots.get(0), slots.get(1), slots.get(2));
+        dealer.checkClaimOf(1);
+        dealer.checkClaimOf(0);
+
+        claim(0, 0, 1, 2); // the tokens of player 0 were removed with the cards, so this toggles new ones
+        dealer.checkClaimOf(0);
+
+        dealer.timeout();
+        dealer.placeCardsOnTable();
+    }
+
+    @Test
+    void run_ReproducesTheRecordedGame() {
+        play();
+
+        Replay replay = new Replay(logger, config, recorded);
+
+        assertEquals(-1, replay.run());
+        assertEquals(1, players[1].getScore());
+        assertArrayEquals(new int[]{players[0].getScore(), players[1].getScore()}, replay.scores());
+    }
+
+    @Test
+    void run_DetectsADifferentDeal() {
+        play();
+        recorded.set(0, new Journal.Entry(0, Journal.Event.START, -1, config.players, 43)); // another seed
+
+        assertNotEquals(-1, new Replay(logger, config, recorded).run());
+    }
+
+    @Test
+    void run_ReproducesAGameRecordedOnDiskByTheGameThreads(@TempDir Path directory)
+            throws IOException, InterruptedException {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "3");
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "3");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        properties.put("ComputerStrategy", "Smart");
+        properties.put("ComputerReactionSeconds", "0.01");
+        properties.put("ComputerKeyDelaySeconds", "0");
+        properties.put("ComputerAccuracy", "0.8");
+        properties.put("TurnTimeoutSeconds", "1");
+        properties.put("PointFreezeSeconds", "0.01");
+        properties.put("PenaltyFreezeSeconds", "0.02");
+        properties.put("TableDelaySeconds", "0");
+        Config config = new Config(logger, properties);
+        Path file = directory.resolve("game.journal");
+        Journal journal = new MappedJournal(file);
+        Env env = new Env(logger, config, new HeadlessUserInterface(logger, config), new UtilImpl(config), Thread::new,
+                "", journal);
+        Player[] players = new Player[config.players];
+        Table table = new Table(env);
+        Dealer dealer = new Dealer(env, table, players, 42);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, false);
+
+        // the game ends by itself when no set is left (27 cards, a few seconds)
+        Thread dealerThread = new Thread(dealer, "dealer");
+        dealerThread.start();
+        dealerThread.join(30000);
+        assertFalse(dealerThread.isAlive(), "the game did not end");
+        journal.close();
+
+        Replay replay = new Replay(logger, config, MappedJournal.read(file));
+
+        assertTrue(players[0].getScore() + players[1].getScore() > 0);
+        assertEquals(-1, replay.run());
+        assertArrayEquals(new int[]{players[0].getScore(), players[1].getScore()}, replay.scores());
+    }
+}
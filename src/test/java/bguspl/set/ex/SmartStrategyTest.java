@@ -0,0 +1,113 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.HeadlessUserInterface;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SmartStrategyTest {
+
+    private Table table;
+    private SmartStrategy strategy;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "3");
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "3");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("ComputerStrategy", "Smart");
+        properties.put("ComputerReactionSeconds", "0");
+        properties.put("ComputerKeyDelaySeconds", "0");
+        properties.put("ComputerAccuracy", "1");
+        Logger logger = Logger.getLogger("SmartStrategyTest");
+        logger.setUseParentHandlers(false);
+        Config config = new Config(logger, properties);
+
+        Env env = new Env(logger, config, new HeadlessUserInterface(logger, config), new UtilImpl(config));
+        table = new Table(env);
+        strategy = new SmartStrategy(env, table, 0, new Random(42));
+
+        // the only set among these cards is 0, 1, 2 (in slots 1, 3, 5)
+        table.placeCards(new int[]{3, 0, 4, 1, 9, 2}, new int[]{0, 1, 2, 3, 4, 5});
+    }
+
+    /**
+     * Presses the next key as the player thread would.
+     */
+    private int press() throws InterruptedException {
+        int slot = strategy.nextKey();
+        table.makeAction(0, slot);
+        strategy.keyHandled();
+        return slot;
+    }
+
+    @Test
+    void nextKey_PressesTheSlotsOfTheSet() throws InterruptedException {
+        int[] pressed = {press(), press(), press()};
+
+        Arrays.sort(pressed);
+        assertArrayEquals(new int[]{1, 3, 5}, pressed);
+    }
+
+    @Test
+    void nextKey_RemovesTheTokensOutsideTheSetFirst() throws InterruptedException {
+        table.makeAction(0, 4);
+
+        assertEquals(4, press());
+        assertEquals(0, table.getPlayerSlots(0).length);
+    }
+
+    @Test
+    void nextKey_WaitsForThePreviousPressToBeApplied() throws InterruptedException {
+        // the AI thread presses the keys (with no key delay) while the player thread applies them later
+        BlockingQueue<Integer> presses = new LinkedBlockingQueue<>();
+        Thread ai = new Thread(() -> {
+            try {
+                for (int i = 0; i < 3; i++)
+                    presses.put(strategy.nextKey());
+            } catch (InterruptedException ignored) {}
+        });
+        ai.start();
+
+        int[] pressed = new int[3];
+        for (int i = 0; i < pressed.length; i++) {
+            pressed[i] = presses.take();
+            Thread.sleep(20);
+            table.makeAction(0, pressed[i]);
+            strategy.keyHandled();
+        }
+        ai.join();
+
+        Arrays.sort(pressed);
+        assertArrayEquals(new int[]{1, 3, 5}, pressed);
+        int[] tokens = table.getPlayerSlots(0);
+        assertArrayEquals(new int[]{1, 3, 5}, tokens);
+    }
+
+    @Test
+    void nextKey_SpotsAgainWhenTheSetLeavesTheTable() throws InterruptedException {
+        press();
+        table.removeCards(new int[]{0, 1, 2, 3, 4, 5});
+        table.placeCards(new int[]{6, 3, 7, 4, 8, 9}, new int[]{0, 1, 2, 3, 4, 5}); // the only set is 6, 7, 8
+
+        int[] pressed = {press(), press(), press()};
+
+        Arrays.sort(pressed);
+        assertArrayEquals(new int[]{0, 2, 4}, pressed);
+    }
+}
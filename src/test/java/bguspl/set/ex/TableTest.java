@@ -4,18 +4,24 @@ import bguspl.set.Config;
 import bguspl.set.Env;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
+import bguspl.set.UtilImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
 import java.util.Properties;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TableTest {
 
     Table table;
+    private Config config;
     private Integer[] slotToCard;
     private Integer[] cardToSlot;
 
@@ -31,7 +37,7 @@ class TableTest {
         properties.put("PlayerKeys1", "81,87,69,82");
         properties.put("PlayerKeys2", "85,73,79,80");
         MockLogger logger = new MockLogger();
-        Config config = new Config(logger, properties);
+        config = new Config(logger, properties);
         slotToCard = new Integer[config.tableSize];
         cardToSlot = new Integer[config.deckSize];
 
@@ -95,6 +101,94 @@ class TableTest {
         placeSomeCardsAndAssert();
     }
 
+    @Test
+    void makeAction_TogglesTokens() {
+        fillAllSlots();
+
+        table.makeAction(0, 1);
+        table.makeAction(0, 2);
+        table.makeAction(0, 3);
+        assertTrue(table.isCheck(0));
+        assertArrayEquals(new int[]{1, 2, 3}, table.getPlayerCards(0));
+
+        table.makeAction(0, 2);
+        assertFalse(table.isCheck(0));
+        assertArrayEquals(new int[]{1, 3}, table.getPlayerCards(0));
+    }
+
+    @Test
+    void removeCard_RemovesTokensOfAllPlayers() {
+        fillAllSlots();
+        table.placeToken(0, 1);
+        table.placeToken(1, 1);
+        table.placeToken(1, 2);
+
+        table.removeCard(1);
+
+        assertArrayEquals(new int[0], table.getPlayerCards(0));
+        assertArrayEquals(new int[]{2}, table.getPlayerCards(1));
+        assertFalse(table.removeToken(1, 1));
+    }
+
+    @Test
+    void legalSetExists_TracksPlacedAndRemovedCards() {
+        Env env = new Env(new MockLogger(), config, new MockUserInterface(), new UtilImpl(config));
+        table = new Table(env, slotToCard, cardToSlot);
+
+        // 0000, 0001, 0011 is not a set
+        table.placeCard(0, 0);
+        table.placeCard(1, 1);
+        table.placeCard(4, 2);
+        assertFalse(table.legalSetExists());
+
+        // 0000, 0001, 0002 is a set
+        table.placeCard(2, 3);
+        assertTrue(table.legalSetExists());
+
+        table.removeCard(0);
+        assertFalse(table.legalSetExists());
+    }
+
+    @Test
+    void legalSetExists_IndexesTheCardsGivenToTheConstructor() {
+        Env env = new Env(new MockLogger(), config, new MockUserInterface(), new UtilImpl(config));
+        // 0000, 0001, 0002 is a set
+        slotToCard[0] = 0;
+        slotToCard[1] = 1;
+        slotToCard[3] = 2;
+        cardToSlot[0] = 0;
+        cardToSlot[1] = 1;
+        cardToSlot[2] = 3;
+        table = new Table(env, slotToCard, cardToSlot);
+
+        assertTrue(table.legalSetExists());
+
+        table.removeCard(1);
+        assertFalse(table.legalSetExists());
+    }
+
+    @Test
+    void placeCards_PlacesAndRemovesTheWholeDeal() {
+        Env env = new Env(new MockLogger(), config, new MockUserInterface(), new UtilImpl(config));
+        table = new Table(env, slotToCard, cardToSlot);
+
+        // 0000, 0001, 0002 is a set (found once, although all its cards are placed in the same deal)
+        table.placeCards(new int[]{0, 1, 4, 2}, new int[]{0, 1, 2, 3});
+        assertEquals(4, table.countCards());
+        assertEquals(3, (int) cardToSlot[2]);
+        assertTrue(table.legalSetExists());
+
+        table.placeToken(0, 1);
+        table.placeToken(0, 2);
+        table.removeCards(new int[]{1, 3});
+
+        assertEquals(2, table.countCards());
+        assertEquals(null, slotToCard[1]);
+        assertEquals(null, cardToSlot[2]);
+        assertArrayEquals(new int[]{4}, table.getPlayerCards(0));
+        assertFalse(table.legalSetExists());
+    }
+
 
 
 
@@ -105,6 +199,10 @@ class TableTest {
         @Override
         public void removeCard(int slot) {}
         @Override
+        public void placeCards(int[] cards, int[] slots) {}
+        @Override
+        public void removeCards(int[] slots) {}
+        @Override
         public void setCountdown(long millies, boolean warn) {}
         @Override
         public void setElapsed(long millies) {}
@@ -144,6 +242,11 @@ class TableTest {
         public List<int[]> findSets(List<Integer> deck, int count) {
             return null;
         }
+
+        @Override
+        public Stream<int[]> streamSets(int[] cards) {
+            return Stream.empty();
+        }
     }
 
     static class MockLogger extends Logger {